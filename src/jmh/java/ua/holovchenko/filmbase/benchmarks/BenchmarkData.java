@@ -0,0 +1,94 @@
+package ua.holovchenko.filmbase.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ua.holovchenko.filmbase.controllers.dto.FilmUploadDto;
+import ua.holovchenko.filmbase.entities.Director;
+import ua.holovchenko.filmbase.entities.Film;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+import static ua.holovchenko.filmbase.converters.FilmModelEntityConverter.filmModelToEntity;
+import static ua.holovchenko.filmbase.converters.UploadDtoConverter.uploadedDtoToModel;
+
+/**
+ * Benchmark inputs generated from the bundled JSONS/*.json seed files.
+ * Seed films are repeated until the requested size is reached; each copy gets a unique title
+ * and every copy round gets its own directors, so the data stays realistic for sets and lookups.
+ */
+final class BenchmarkData {
+    private static final List<FilmUploadDto> SEEDS = readSeeds();
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param size The number of films.
+     * @return Uploaded films scaled from the seed files.
+     */
+    static List<FilmUploadDto> uploads(int size) {
+        List<FilmUploadDto> uploads = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            FilmUploadDto seed = SEEDS.get(i % SEEDS.size());
+            int round = i / SEEDS.size();
+            uploads.add(new FilmUploadDto(
+                    round == 0 ? seed.getTitle() : seed.getTitle() + " " + round,
+                    seed.getYear(),
+                    seed.getDirectedBy() + " " + round,
+                    copy(seed.getWrittenBy()),
+                    copy(seed.getProducedBy()),
+                    copy(seed.getStarring()),
+                    seed.getRunningTime(),
+                    copy(seed.getGenres())
+            ));
+        }
+        return uploads;
+    }
+
+    /**
+     * @param size The number of films.
+     * @return Film entities with ids, linked to director entities that hold them in their films.
+     */
+    static List<Film> films(int size) {
+        Map<String, Director> directors = new HashMap<>();
+        List<Film> films = new ArrayList<>(size);
+        long id = 1;
+        for (FilmUploadDto upload : uploads(size)) {
+            Director director = directors.computeIfAbsent(upload.getDirectedBy(),
+                    name -> new Director(directors.size() + 1, name));
+            Film film = filmModelToEntity(uploadedDtoToModel(upload), director);
+            film.setId(id++);
+            director.getFilms().add(film);
+            films.add(film);
+        }
+        return films;
+    }
+
+    private static Set<String> copy(Set<String> values) {
+        return values == null ? new HashSet<>() : new HashSet<>(values);
+    }
+
+    private static List<FilmUploadDto> readSeeds() {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        List<FilmUploadDto> seeds = new ArrayList<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath:JSONS/*.json")) {
+                try (InputStream json = resource.getInputStream()) {
+                    seeds.addAll(mapper.readValue(json, new TypeReference<List<FilmUploadDto>>() { }));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (seeds.isEmpty()) {
+            throw new IllegalStateException("No seed films found in JSONS/*.json");
+        }
+        return seeds;
+    }
+}
@@ -0,0 +1,79 @@
+package ua.holovchenko.filmbase.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ua.holovchenko.filmbase.controllers.dto.FilmListDto;
+import ua.holovchenko.filmbase.controllers.dto.FilmUploadDto;
+import ua.holovchenko.filmbase.entities.Director;
+import ua.holovchenko.filmbase.entities.Film;
+import ua.holovchenko.filmbase.models.FilmModel;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static ua.holovchenko.filmbase.converters.DirectorModelEntityConverter.directorEntityToModel;
+import static ua.holovchenko.filmbase.converters.FilmModelEntityConverter.filmEntityToModel;
+import static ua.holovchenko.filmbase.converters.FilmModelEntityConverter.filmModelToEntity;
+import static ua.holovchenko.filmbase.converters.UploadDtoConverter.uploadedDtoToModel;
+
+/**
+ * Conversions between entities, models and DTOs, measured per page of films.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConverterBenchmark {
+    @Param({"100", "1000"})
+    int size;
+
+    List<Film> films;
+    List<FilmModel> models;
+    List<FilmUploadDto> uploads;
+    Set<Director> directors;
+
+    @Setup
+    public void setUp() {
+        films = BenchmarkData.films(size);
+        models = films.stream().map(film -> filmEntityToModel(film)).toList();
+        uploads = BenchmarkData.uploads(size);
+        directors = new LinkedHashSet<>();
+        films.forEach(film -> directors.add(film.getDirectedBy()));
+    }
+
+    @Benchmark
+    public void filmEntityToModelPage(Blackhole blackhole) {
+        for (Film film : films) {
+            blackhole.consume(filmEntityToModel(film));
+        }
+    }
+
+    @Benchmark
+    public void filmEntityToListDtoPage(Blackhole blackhole) {
+        for (Film film : films) {
+            blackhole.consume(new FilmListDto(filmEntityToModel(film)));
+        }
+    }
+
+    @Benchmark
+    public void filmModelToEntityPage(Blackhole blackhole) {
+        for (FilmModel model : models) {
+            blackhole.consume(filmModelToEntity(model));
+        }
+    }
+
+    @Benchmark
+    public void directorEntityToModelAll(Blackhole blackhole) {
+        for (Director director : directors) {
+            blackhole.consume(directorEntityToModel(director));
+        }
+    }
+
+    @Benchmark
+    public void uploadedDtoToModelPage(Blackhole blackhole) {
+        for (FilmUploadDto upload : uploads) {
+            blackhole.consume(uploadedDtoToModel(upload));
+        }
+    }
+}
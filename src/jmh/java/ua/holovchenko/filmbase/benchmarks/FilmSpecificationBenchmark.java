@@ -0,0 +1,109 @@
+package ua.holovchenko.filmbase.benchmarks;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+import ua.holovchenko.filmbase.converters.NameDictionary;
+import ua.holovchenko.filmbase.controllers.dto.Filters;
+import ua.holovchenko.filmbase.entities.Director;
+import ua.holovchenko.filmbase.entities.Film;
+import ua.holovchenko.filmbase.entities.FilmPerson;
+import ua.holovchenko.filmbase.repositories.criteria.FilmSpecification;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of Criteria predicates for typical filter shapes.
+ * The Hibernate metamodel is built without a database, so only predicate building is measured.
+ * Attribute converters are created through a Spring bean container holding the name dictionary, as in the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FilmSpecificationBenchmark {
+    @Param({"empty", "ranges", "people", "all"})
+    String filters;
+
+    GenericApplicationContext context;
+    StandardServiceRegistry registry;
+    SessionFactory sessionFactory;
+    CriteriaBuilder criteriaBuilder;
+    FilmSpecification specification;
+    Filters value;
+
+    @Setup
+    public void setUp() {
+        context = new GenericApplicationContext();
+        context.registerBean(NameDictionary.class, () -> new NameDictionary(100_000));
+        context.refresh();
+        registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DIALECT, PostgreSQLDialect.class.getName())
+                .applySetting("hibernate.temp.use_jdbc_metadata_defaults", false)
+                .applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, false)
+                .applySetting(AvailableSettings.BEAN_CONTAINER, new SpringBeanContainer(context.getBeanFactory()))
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClasses(Film.class, Director.class, FilmPerson.class)
+                .buildMetadata()
+                .buildSessionFactory();
+        criteriaBuilder = sessionFactory.getCriteriaBuilder();
+        specification = new FilmSpecification();
+        value = filters(filters);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+        context.close();
+    }
+
+    @Benchmark
+    public Object filmSpecification() {
+        CriteriaQuery<Film> query = criteriaBuilder.createQuery(Film.class);
+        Root<Film> root = query.from(Film.class);
+        Specification<Film> spec = specification.filmSpecification(value);
+        return query.where(spec.toPredicate(root, query, criteriaBuilder));
+    }
+
+    private static Filters filters(String shape) {
+        Filters filters = new Filters();
+        switch (shape) {
+            case "empty" -> { }
+            case "ranges" -> {
+                filters.setYearSince(1960);
+                filters.setYearTo(1990);
+                filters.setRunningTimeMax(120);
+            }
+            case "people" -> {
+                filters.setStarring(Set.of("James Stewart"));
+                filters.setWrittenBy(Set.of("Ernest Lehman"));
+                filters.setGenres(Set.of("thriller", "drama"));
+            }
+            case "all" -> {
+                filters.setYearSince(1960);
+                filters.setYearTo(1990);
+                filters.setRunningTimeMin(90);
+                filters.setRunningTimeMax(120);
+                filters.setDirectedBy("Alfred Hitchcock");
+                filters.setStarring(Set.of("James Stewart"));
+                filters.setProducedBy(Set.of("Alfred Hitchcock"));
+                filters.setWrittenBy(Set.of("Ernest Lehman"));
+                filters.setGenres(Set.of("thriller", "drama"));
+            }
+            default -> throw new IllegalArgumentException("Unknown filters: " + shape);
+        }
+        return filters;
+    }
+}
@@ -0,0 +1,165 @@
+package ua.holovchenko.filmbase.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ua.holovchenko.filmbase.controllers.dto.FilmUploadDto;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent _list and _report calls over HTTP, with request handling on platform threads and on virtual threads.
+ * The application jar given by the filmbase.benchmark.app system property is started in its own JVM
+ * against the database configured by JDBC_DATABASE_URL, JDBC_DATABASE_USERNAME and JDBC_DATABASE_PASSWORD.
+ * Scaled seed films are uploaded once; the list cache and the report cache are disabled and the in-memory catalog
+ * is left off, so every call queries the database and streams its rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(64)
+public class HttpLoadBenchmark {
+    private static final String BOUNDARY = "filmbase-benchmark";
+    private static final long STARTUP_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final long SEED_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Param({"false", "true"})
+    boolean virtualThreads;
+
+    @Param("2000")
+    int films;
+
+    @Param("10")
+    int poolSize;
+
+    @Param("32")
+    int tomcatThreads;
+
+    Process application;
+    HttpClient client;
+    String baseUrl;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        application = new ProcessBuilder(java, "-jar", System.getProperty("filmbase.benchmark.app"),
+                "--server.port=" + port,
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "--server.tomcat.threads.max=" + tomcatThreads,
+                "--filmbase.list-cache.maximum-size=0",
+                "--filmbase.report.cache.maximum-size=0",
+                "--filmbase.catalog.in-memory.enabled=false")
+                .redirectErrorStream(true)
+                .redirectOutput(new File(System.getProperty("java.io.tmpdir"), "filmbase-benchmark.log"))
+                .start();
+        baseUrl = "http://localhost:" + port + "/api/";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        awaitStartup(port);
+        seed();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        application.destroy();
+        application.waitFor();
+    }
+
+    @Benchmark
+    public int list() throws IOException, InterruptedException {
+        int year = 1920 + ThreadLocalRandom.current().nextInt(100);
+        return post("films/_list", "{\"page\":1,\"pageSize\":20,\"yearSince\":" + year + "}").length;
+    }
+
+    @Benchmark
+    public int report() throws IOException, InterruptedException {
+        return post("films/_report", "{}").length;
+    }
+
+    private byte[] post(String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " returned " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private void awaitStartup(int port) throws IOException, InterruptedException {
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health")).build();
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (application.isAlive() && System.currentTimeMillis() < deadline) {
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("Application did not start, see filmbase-benchmark.log");
+    }
+
+    /**
+     * Creates the directors of the scaled seed films, uploads the films and waits for their import job.
+     * Existing directors and films are skipped by the API.
+     * Fails if the upload is refused, the job doesn't finish in time or any of its films fail to import.
+     */
+    private void seed() throws IOException, InterruptedException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        List<FilmUploadDto> uploads = BenchmarkData.uploads(films);
+        for (String director : uploads.stream().map(FilmUploadDto::getDirectedBy).distinct().toList()) {
+            client.send(HttpRequest.newBuilder(URI.create(baseUrl + "directors"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(Map.of("name", director))))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+        }
+        String multipart = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"films.json\"\r\n"
+                + "Content-Type: application/json\r\n\r\n"
+                + mapper.writeValueAsString(uploads) + "\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+        HttpResponse<String> job = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "films/upload"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofString(multipart, StandardCharsets.UTF_8))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (job.statusCode() != 202) {
+            throw new IllegalStateException("films/upload returned " + job.statusCode());
+        }
+        HttpRequest progress = HttpRequest.newBuilder(URI.create(baseUrl + "films/upload/" + mapper.readTree(job.body()).get("id").asLong())).build();
+        long deadline = System.currentTimeMillis() + SEED_TIMEOUT_MILLIS;
+        JsonNode status = mapper.readTree(client.send(progress, HttpResponse.BodyHandlers.ofString()).body());
+        while (!"DONE".equals(status.get("status").asText())) {
+            if (!application.isAlive() || System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException("Seed import did not finish: " + status);
+            }
+            Thread.sleep(500);
+            status = mapper.readTree(client.send(progress, HttpResponse.BodyHandlers.ofString()).body());
+        }
+        if (status.path("result").path("failed").asInt() > 0) {
+            throw new IllegalStateException("Seed import failed: " + status);
+        }
+    }
+}
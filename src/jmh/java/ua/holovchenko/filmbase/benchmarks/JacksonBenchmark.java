@@ -0,0 +1,70 @@
+package ua.holovchenko.filmbase.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ua.holovchenko.filmbase.controllers.dto.FilmListDto;
+import ua.holovchenko.filmbase.controllers.dto.FilmUploadDto;
+import ua.holovchenko.filmbase.models.FilmModel;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static ua.holovchenko.filmbase.converters.FilmModelEntityConverter.filmEntityToModel;
+
+/**
+ * JSON (de)serialization of film pages with a mapper configured as Spring Boot configures it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JacksonBenchmark {
+    @Param({"100", "1000"})
+    int size;
+
+    ObjectWriter modelWriter;
+    ObjectWriter listDtoWriter;
+    ObjectReader modelReader;
+    ObjectReader uploadReader;
+    List<FilmModel> models;
+    List<FilmListDto> listDtos;
+    byte[] modelJson;
+    byte[] uploadJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        models = BenchmarkData.films(size).stream().map(film -> filmEntityToModel(film)).toList();
+        models.forEach(model -> model.getDirectedBy().getFilms().clear());
+        listDtos = models.stream().map(FilmListDto::new).toList();
+        modelWriter = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, FilmModel.class));
+        listDtoWriter = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, FilmListDto.class));
+        modelReader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, FilmModel.class));
+        uploadReader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, FilmUploadDto.class));
+        modelJson = modelWriter.writeValueAsBytes(models);
+        uploadJson = mapper.writeValueAsBytes(BenchmarkData.uploads(size));
+    }
+
+    @Benchmark
+    public byte[] writeFilmModels() throws IOException {
+        return modelWriter.writeValueAsBytes(models);
+    }
+
+    @Benchmark
+    public byte[] writeFilmListDtos() throws IOException {
+        return listDtoWriter.writeValueAsBytes(listDtos);
+    }
+
+    @Benchmark
+    public Object readFilmModels() throws IOException {
+        return modelReader.readValue(modelJson);
+    }
+
+    @Benchmark
+    public Object readFilmUploads() throws IOException {
+        return uploadReader.readValue(uploadJson);
+    }
+}
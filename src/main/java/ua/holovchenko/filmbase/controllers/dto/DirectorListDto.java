@@ -0,0 +1,14 @@
+package ua.holovchenko.filmbase.controllers.dto;
+
+import lombok.Value;
+
+/**
+ *  Shortened DTO for @link{ua.holovchenko.filmbase.entities.Director}
+ *  for use in lists, with the number of films instead of the films themselves
+ */
+@Value
+public class DirectorListDto {
+    long id;
+    String name;
+    long filmCount;
+}
@@ -0,0 +1,20 @@
+package ua.holovchenko.filmbase.controllers.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Response body DTO containing a page of shortened Director DTOs and number of pages.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class DirectorListResponse {
+    List<DirectorListDto> directors;
+    int totalPages;
+}
@@ -0,0 +1,26 @@
+package ua.holovchenko.filmbase.controllers.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response body DTO containing numbers of filtered films per genre, director, year range and running time range.
+ * Genres and directors are ordered from the most frequent.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class FilmFacetsResponse {
+    Map<String, Long> genres = new LinkedHashMap<>();
+    Map<String, Long> directors = new LinkedHashMap<>();
+    List<RangeFacet> years = new ArrayList<>();
+    List<RangeFacet> runningTimes = new ArrayList<>();
+}
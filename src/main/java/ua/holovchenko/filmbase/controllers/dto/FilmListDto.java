@@ -1,20 +1,28 @@
 package ua.holovchenko.filmbase.controllers.dto;
 
+import com.opencsv.bean.CsvBindByName;
+import com.opencsv.bean.CsvCustomBindByName;
 import lombok.Value;
+import ua.holovchenko.filmbase.converters.DirectorCsvConverter;
 import ua.holovchenko.filmbase.models.DirectorModel;
 import ua.holovchenko.filmbase.models.FilmModel;
 
 
 /**
  *  Shortened DTO for @link{ua.holovchenko.filmbase.entities.Film}
- *  for use in lists
+ *  for use in lists and CSV reports
  */
 @Value
 public class FilmListDto {
+    @CsvBindByName
     long id;
+    @CsvBindByName
     String title;
+    @CsvBindByName
     Integer year;
+    @CsvCustomBindByName(converter = DirectorCsvConverter.class)
     DirectorModel directedBy;
+    @CsvBindByName
     Integer runningTime;
 
     public FilmListDto(FilmModel film) {
@@ -24,4 +32,21 @@ public class FilmListDto {
         this.directedBy = film.getDirectedBy();
         this.runningTime = film.getRunningTime();
     }
+
+    /**
+     * Constructor for projections reading list columns directly from the database.
+     * @param id The id of the film.
+     * @param title The title of the film.
+     * @param year The year the film was released.
+     * @param directorId The id of the director, or null if the film has none.
+     * @param directorName The name of the director.
+     * @param runningTime The duration of the film in minutes.
+     */
+    public FilmListDto(long id, String title, Integer year, Long directorId, String directorName, Integer runningTime) {
+        this.id = id;
+        this.title = title;
+        this.year = year;
+        this.directedBy = directorId == null ? null : new DirectorModel(directorId, directorName);
+        this.runningTime = runningTime;
+    }
 }
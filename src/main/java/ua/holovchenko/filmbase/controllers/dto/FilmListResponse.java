@@ -8,7 +8,8 @@ import lombok.ToString;
 import java.util.List;
 
 /**
- * Response body DTO containing a list of shortened Film DTOs and number of such pages base holds.
+ * Response body DTO containing a list of shortened Film DTOs and the cursor of the next page.
+ * Number of pages base holds is only counted for requests without sort key and cursor.
  */
 @Getter
 @Setter
@@ -16,5 +17,6 @@ import java.util.List;
 @EqualsAndHashCode
 public class FilmListResponse {
     List<FilmListDto> films;
-    int totalPages;
+    Integer totalPages;
+    String nextCursor;
 }
@@ -0,0 +1,28 @@
+package ua.holovchenko.filmbase.controllers.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+
+/**
+ * Sort keys supported by film lists, each mapped to the Film attribute it orders by.
+ * Ties are always broken by id, so the order is total; films without a nullable key come last.
+ */
+@Getter
+public enum FilmSortKey {
+    @JsonProperty("id")
+    ID("id", false),
+    @JsonProperty("title")
+    TITLE("title", false),
+    @JsonProperty("year")
+    YEAR("year", true),
+    @JsonProperty("runningTime")
+    RUNNING_TIME("runningTime", true);
+
+    private final String attribute;
+    private final boolean nullable;
+
+    FilmSortKey(String attribute, boolean nullable) {
+        this.attribute = attribute;
+        this.nullable = nullable;
+    }
+}
@@ -13,4 +13,19 @@ import lombok.*;
 public class FilmsUploadResponse {
     int imported = 0;
     int failed = 0;
+    int skipped = 0;
+    int updated = 0;
+
+    /**
+     * Adds counts of another upload response to this one.
+     * @param other The response to add.
+     * @return This response.
+     */
+    public FilmsUploadResponse merge(FilmsUploadResponse other) {
+        this.imported += other.imported;
+        this.failed += other.failed;
+        this.skipped += other.skipped;
+        this.updated += other.updated;
+        return this;
+    }
 }
@@ -8,6 +8,8 @@ import java.util.Set;
 
 /**
  * DTO containing pagination and filtration params to take from request.
+ * Pages are addressed either by page number or, for constant cost on deep pages,
+ * by the opaque cursor returned with the previous page.
  */
 @Getter
 @Setter
@@ -29,4 +31,6 @@ public class Filters {
     Integer runningTimeMin;
     Integer runningTimeMax;
     Set<String> genres;
+    FilmSortKey sort;
+    String cursor;
 }
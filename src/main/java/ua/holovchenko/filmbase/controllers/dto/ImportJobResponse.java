@@ -0,0 +1,26 @@
+package ua.holovchenko.filmbase.controllers.dto;
+
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Response body describing an upload import job and its progress.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class ImportJobResponse {
+    private long id;
+    private ImportJobStatus status;
+    private ImportMode mode;
+    private int films;
+    private int chunks;
+    private int processedChunks;
+    private FilmsUploadResponse result;
+    private OffsetDateTime createdAt;
+    private OffsetDateTime finishedAt;
+}
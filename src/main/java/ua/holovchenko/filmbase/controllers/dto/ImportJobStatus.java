@@ -0,0 +1,19 @@
+package ua.holovchenko.filmbase.controllers.dto;
+
+/**
+ * Status of an upload import job.
+ */
+public enum ImportJobStatus {
+    /**
+     * No chunk of the job has been claimed yet.
+     */
+    PENDING,
+    /**
+     * Some chunks are claimed or imported, others are still to be imported.
+     */
+    RUNNING,
+    /**
+     * All chunks are imported.
+     */
+    DONE
+}
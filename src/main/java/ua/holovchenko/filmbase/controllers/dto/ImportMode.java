@@ -0,0 +1,15 @@
+package ua.holovchenko.filmbase.controllers.dto;
+
+/**
+ * How an upload treats films whose title already exists.
+ */
+public enum ImportMode {
+    /**
+     * Existing films are kept and the uploaded ones are counted as skipped.
+     */
+    SKIP,
+    /**
+     * Existing films are overwritten by the uploaded ones and counted as updated.
+     */
+    OVERWRITE
+}
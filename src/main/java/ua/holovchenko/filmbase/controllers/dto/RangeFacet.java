@@ -0,0 +1,13 @@
+package ua.holovchenko.filmbase.controllers.dto;
+
+import lombok.Value;
+
+/**
+ * Number of films with a value within an inclusive range.
+ */
+@Value
+public class RangeFacet {
+    int from;
+    int to;
+    long count;
+}
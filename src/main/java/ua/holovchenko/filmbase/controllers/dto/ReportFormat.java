@@ -0,0 +1,51 @@
+package ua.holovchenko.filmbase.controllers.dto;
+
+import lombok.Getter;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Formats of film reports, each with its media type and file extension.
+ */
+@Getter
+public enum ReportFormat {
+    /**
+     * Comma-separated values with a header line, the default format.
+     */
+    CSV(MediaType.parseMediaType("text/csv; charset=UTF-8"), "csv"),
+    /**
+     * Newline-delimited JSON, one film list row per line.
+     */
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ReportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    /**
+     * Chooses the format for the media types accepted by a client, most specific and preferred first.
+     * Wildcards choose the first format that matches, CSV for any type.
+     * @param accepted The accepted media types, e.g. parsed from an Accept header.
+     * @return The format, or empty if no format is acceptable.
+     */
+    public static Optional<ReportFormat> negotiate(List<MediaType> accepted) {
+        List<MediaType> sorted = new ArrayList<>(accepted);
+        MimeTypeUtils.sortBySpecificity(sorted);
+        for (MediaType type : sorted) {
+            for (ReportFormat format : values()) {
+                if (type.getQualityValue() > 0 && type.includes(format.mediaType)) {
+                    return Optional.of(format);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+}
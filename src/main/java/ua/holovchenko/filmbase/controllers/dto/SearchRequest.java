@@ -0,0 +1,18 @@
+package ua.holovchenko.filmbase.controllers.dto;
+
+import lombok.*;
+
+/**
+ * DTO containing free-text search query and pagination params to take from request.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class SearchRequest {
+    int page = 1;
+    int pageSize = 10;
+    String query;
+}
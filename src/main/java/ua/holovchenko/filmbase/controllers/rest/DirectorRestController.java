@@ -2,12 +2,17 @@ package ua.holovchenko.filmbase.controllers.rest;
 
 import jakarta.validation.ValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ua.holovchenko.filmbase.controllers.dto.DirectorListResponse;
+import ua.holovchenko.filmbase.controllers.dto.FilmListResponse;
 import ua.holovchenko.filmbase.models.DirectorModel;
 import ua.holovchenko.filmbase.services.DirectorService;
+import ua.holovchenko.filmbase.services.EntityTags;
 
-import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
@@ -29,12 +34,49 @@ public class DirectorRestController {
 
     /**
      * Controller for GET api/directors endpoint.
-     * Get all directors.
-     * @return ResponseEntity with a list of @link{ua.holovchenko.filmbase.models.DirectorModel}.
+     * Get a page of directors with numbers of their films, with its ETag;
+     * a current If-None-Match is answered from versions and counts without loading directors.
+     * @param page The number of the page, starting from 1.
+     * @param pageSize The number of directors on a page.
+     * @param ifNoneMatch The If-None-Match header with ETags of the page the client has, if any.
+     * @return ResponseEntity with a @link{ua.holovchenko.filmbase.controllers.dto.DirectorListResponse},
+     * a not modified response if the client's page is current, or a bad request response if paging params are invalid.
      */
     @GetMapping
-    public ResponseEntity<List<DirectorModel>> getDirectors() {
-        return ResponseEntity.ok().body(service.findAll());
+    public ResponseEntity<DirectorListResponse> getDirectors(@RequestParam(defaultValue = "1") int page,
+                                                             @RequestParam(defaultValue = "10") int pageSize,
+                                                             @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (page < 1 || pageSize < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = service.getDirectorListEtag(page, pageSize);
+        if (EntityTags.matches(ifNoneMatch, etag, true)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(service.listDirectors(page, pageSize));
+    }
+
+    /**
+     * Controller for GET api/directors/{id}/films endpoint.
+     * Get a page of films of a director.
+     * @param id The ID of the director.
+     * @param page The number of the page, starting from 1.
+     * @param pageSize The number of films on a page.
+     * @return ResponseEntity with a @link{ua.holovchenko.filmbase.controllers.dto.FilmListResponse},
+     * a bad request response if paging params are invalid or a not found response if the director does not exist.
+     */
+    @GetMapping("/{id}/films")
+    public ResponseEntity<FilmListResponse> getDirectorFilms(@PathVariable Long id,
+                                                             @RequestParam(defaultValue = "1") int page,
+                                                             @RequestParam(defaultValue = "10") int pageSize) {
+        if (page < 1 || pageSize < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok().body(service.listFilms(id, page, pageSize));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
     }
 
     /**
@@ -60,7 +102,8 @@ public class DirectorRestController {
      * Update an existing director.
      * @param directorId The ID of the director to be updated.
      * @param model The updated DirectorModel object.
-     * @return ResponseEntity with the updated DirectorModel object or a bad request response if validation fails.
+     * @return ResponseEntity with the updated DirectorModel object, a bad request response if validation fails,
+     * or conflict if the director was changed concurrently.
      */
     @PutMapping("/{directorId}")
     public ResponseEntity<DirectorModel> updateDirector(@PathVariable Long directorId, @RequestBody DirectorModel model) {
@@ -71,6 +114,8 @@ public class DirectorRestController {
             return ResponseEntity.ok().body(service.updateDirector(directorId, model));
         } catch (ValidationException e) {
             return ResponseEntity.badRequest().build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
     }
 
@@ -78,7 +123,8 @@ public class DirectorRestController {
      * Controller for DELETE api/directors/{id} endpoint.
      * Delete a director by ID.
      * @param id The ID of the director to be deleted.
-     * @return ResponseEntity with a success message or a not found response if the director does not exist.
+     * @return ResponseEntity with a success message, a not found response if the director does not exist,
+     * or a bad request response if the director still has films.
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<String> deleteDirector(@PathVariable Long id) {
@@ -87,6 +133,8 @@ public class DirectorRestController {
             return ResponseEntity.ok().body("Director deleted successfully: " + id);
         } catch (NoSuchElementException e) {
             return ResponseEntity.notFound().build();
+        } catch (ValidationException e) {
+            return ResponseEntity.badRequest().build();
         }
     }
 
@@ -1,28 +1,37 @@
 package ua.holovchenko.filmbase.controllers.rest;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ua.holovchenko.filmbase.controllers.dto.FilmFacetsResponse;
 import ua.holovchenko.filmbase.controllers.dto.FilmListResponse;
-import ua.holovchenko.filmbase.controllers.dto.FilmUploadDto;
 import ua.holovchenko.filmbase.controllers.dto.FilmsUploadResponse;
 import ua.holovchenko.filmbase.controllers.dto.Filters;
+import ua.holovchenko.filmbase.controllers.dto.ImportJobResponse;
+import ua.holovchenko.filmbase.controllers.dto.ImportMode;
+import ua.holovchenko.filmbase.controllers.dto.ReportFormat;
+import ua.holovchenko.filmbase.controllers.dto.SearchRequest;
 import ua.holovchenko.filmbase.models.FilmModel;
+import ua.holovchenko.filmbase.services.EntityTags;
 import ua.holovchenko.filmbase.services.FilmService;
+import ua.holovchenko.filmbase.services.ReportCache;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 
 /**
  * Rest controller for managing films.
@@ -30,6 +39,11 @@ import java.util.NoSuchElementException;
 @RestController
 @RequestMapping("api/films")
 public class FilmRestController {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final FilmService service;
 
     /**
@@ -45,7 +59,8 @@ public class FilmRestController {
      * Controller for POST api/films endpoint.
      * Create a new film.
      * @param model The FilmModel object representing the film to be created.
-     * @return ResponseEntity with the created FilmModel object or a bad request response if validation fails.
+     * @return ResponseEntity with the created FilmModel object or a bad request response if validation fails
+     * or the title already exists.
      */
     @PostMapping
     public ResponseEntity<FilmModel> createFilm(@RequestBody FilmModel model) {
@@ -54,21 +69,28 @@ public class FilmRestController {
         }
         try {
             return ResponseEntity.created(URI.create("api/films/" + model.getTitle())).body(service.createFilm(model));
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | ValidationException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     /**
      * Controller for GET api/films/{id} endpoint.
-     * Get a film by ID.
+     * Get a film by ID, with its ETag; a current If-None-Match is answered from versions without loading the film.
      * @param id The ID of the film to retrieve.
-     * @return ResponseEntity with the requested FilmModel object or a not found response if the film does not exist.
+     * @param ifNoneMatch The If-None-Match header with ETags of the film the client has, if any.
+     * @return ResponseEntity with the requested FilmModel object, a not modified response if the client's film is current,
+     * or a not found response if the film does not exist.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<FilmModel> getFilm(@PathVariable Long id) {
+    public ResponseEntity<FilmModel> getFilm(@PathVariable Long id,
+                                             @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            return ResponseEntity.ok().body(service.getFilmById(id));
+            String etag = service.getFilmEtag(id);
+            if (EntityTags.matches(ifNoneMatch, etag, true)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok().eTag(etag).body(service.getFilmById(id));
         } catch (NoSuchElementException e) {
             return ResponseEntity.notFound().build();
         }
@@ -76,23 +98,28 @@ public class FilmRestController {
 
     /**
      * Controller for PUT api/films/{id} endpoint.
-     * Update an existing film.
+     * Update an existing film, if it still has one of the ETags of If-Match when the header is given.
      * @param filmId The ID of the film to update.
      * @param model The updated FilmModel object.
+     * @param ifMatch The If-Match header with ETags the film must have, if any.
      * @return ResponseEntity with the updated FilmModel object or a bad request response if validation fails,
-     * or not found if the film does not exist.
+     * not found if the film does not exist, precondition failed if it doesn't match If-Match,
+     * or conflict if it was changed concurrently without If-Match.
      */
     @PutMapping("/{filmId}")
-    public ResponseEntity<FilmModel> updateFilm(@PathVariable Long filmId, @RequestBody FilmModel model) {
+    public ResponseEntity<FilmModel> updateFilm(@PathVariable Long filmId, @RequestBody FilmModel model,
+                                                @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         if (!validateRequestBody(model)) {
             return ResponseEntity.badRequest().build();
         }
         try {
-            return ResponseEntity.ok().body(service.updateFilm(filmId, model));
+            return ResponseEntity.ok().body(service.updateFilm(filmId, model, ifMatch));
         } catch (NoSuchElementException e) {
             return ResponseEntity.notFound().build();
         } catch (ValidationException e) {
             return ResponseEntity.badRequest().build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(ifMatch == null ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED).build();
         }
     }
 
@@ -116,49 +143,206 @@ public class FilmRestController {
      * Controller for POST api/films/_list endpoint.
      * List films based on filters.
      * @param filters The @link{ua.holovchenko.filmbase.controllers.dto.Filters} object
-     *                containing filter parameters, page size and requested page number.
-     * @return ResponseEntity with a @link{ua.holovchenko.filmbase.controllers.dto.FilmListResponse} containing the page of shortened films information.
+     *                containing filter parameters, page size and requested page number or cursor.
+     * @return ResponseEntity with a @link{ua.holovchenko.filmbase.controllers.dto.FilmListResponse} containing the page of shortened films information,
+     * or a bad request response if the cursor is malformed.
      */
     @PostMapping("/_list")
     public ResponseEntity<FilmListResponse> listFilms(@RequestBody Filters filters) {
-        return ResponseEntity.ok(service.listFilms(filters));
+        if (filters.getPage() < 1 || filters.getPageSize() < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(service.listFilms(filters));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Controller for POST api/films/_search endpoint.
+     * Full-text search of films by title, people and genres.
+     * @param request The @link{ua.holovchenko.filmbase.controllers.dto.SearchRequest} object
+     *                containing the query, page size and requested page number.
+     * @return ResponseEntity with a @link{ua.holovchenko.filmbase.controllers.dto.FilmListResponse} containing the page of
+     * shortened films information ranked by relevance, or a bad request response if the query is empty.
+     */
+    @PostMapping("/_search")
+    public ResponseEntity<FilmListResponse> searchFilms(@RequestBody SearchRequest request) {
+        if (request.getQuery() == null || request.getQuery().isBlank()
+                || request.getPage() < 1 || request.getPageSize() < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(service.searchFilms(request));
+    }
+
+    /**
+     * Controller for POST api/films/_facets endpoint.
+     * Count films matching the filters per genre, director, year range and running time range.
+     * @param filters The @link{ua.holovchenko.filmbase.controllers.dto.Filters} object containing filter parameters,
+     *                paging is ignored.
+     * @return ResponseEntity with a @link{ua.holovchenko.filmbase.controllers.dto.FilmFacetsResponse} containing the counts.
+     */
+    @PostMapping("/_facets")
+    public ResponseEntity<FilmFacetsResponse> countFacets(@RequestBody Filters filters) {
+        return ResponseEntity.ok(service.countFacets(filters));
     }
 
     /**
      * Controller for POST api/films/_report endpoint
-     * Download a film report based on filters.
+     * Download a film report based on filters, as CSV or, with {@code Accept: application/x-ndjson}, as NDJSON.
+     * The report is gzip-compressed when the client accepts it.
+     * Reports carry a strong ETag that changes with every write of films or directors; repeated downloads
+     * are served from the report cache, or answered with not modified if the client's copy is current.
+     * A cached report is sent by Tomcat with sendfile where the connector supports it,
+     * so its bytes go from the file to the socket without passing through the application.
      * @param filters The @link{ua.holovchenko.filmbase.controllers.dto.Filters} object containing filter parameters.
+     * @param accept The Accept header choosing the @link{ua.holovchenko.filmbase.controllers.dto.ReportFormat}, CSV by default.
+     * @param acceptEncoding The Accept-Encoding header, choosing gzip if it is listed.
+     * @param ifNoneMatch The If-None-Match header with ETags of reports the client has, if any.
+     * @param request The request, carrying the sendfile attributes of a cached report.
      * @return ResponseEntity with a StreamingResponseBody containing the report data,
-     * accumulating in .csv file for download
+     * accumulating in .csv or .ndjson file for download, a not modified response if the client's report is current,
+     * a not acceptable response if no format is accepted, or a bad request response if a filter value can't be used.
      */
     @PostMapping(path = "/_report")
-    public ResponseEntity<StreamingResponseBody> downloadFilmReport(@RequestBody Filters filters) {
+    public ResponseEntity<StreamingResponseBody> downloadFilmReport(@RequestBody Filters filters,
+                                                                    @RequestHeader(name = HttpHeaders.ACCEPT, defaultValue = MediaType.ALL_VALUE) String accept,
+                                                                    @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                                    @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                    HttpServletRequest request) {
+        ReportFormat format;
+        try {
+            format = ReportFormat.negotiate(MediaType.parseMediaTypes(accept)).orElse(null);
+        } catch (InvalidMediaTypeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (format == null) {
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+        }
         HttpHeaders headers = new HttpHeaders();
-        StreamingResponseBody reportStream = service.createReport(filters);
-        headers.setContentType(MediaType.parseMediaType("text/csv; charset=UTF-8"));
-        headers.setContentDispositionFormData("attachment", "filmReport_" + LocalDateTime.now() + ".csv");
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = service.reportEtag(filters, format, gzip);
+        headers.setETag(etag);
+        headers.setVary(List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING));
+        if (EntityTags.matches(ifNoneMatch, etag, true)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        headers.setContentType(format.getMediaType());
+        headers.setContentDispositionFormData("attachment", "filmReport_" + LocalDateTime.now() + "." + format.getExtension());
+        Optional<ReportCache.CachedReport> cached = service.findReport(etag);
+        if (cached.isPresent()) {
+            ReportCache.CachedReport report = cached.get();
+            headers.setContentLength(report.length());
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, report.file().toString());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, report.length());
+                return ResponseEntity.ok().headers(headers).build();
+            }
+            return ResponseEntity.ok().headers(headers).body(report.body());
+        }
+        StreamingResponseBody reportStream;
+        try {
+            reportStream = service.createReport(filters, format, gzip, etag);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
         return ResponseEntity.ok().headers(headers).body(reportStream);
     }
 
     /**
      * Controller for POST api/films/upload endpoint.
-     * Upload films from a JSON file.
+     * Upload films from a JSON file. The films are staged as an import job and imported asynchronously.
+     * Films whose title already exists are skipped, or overwritten with {@code mode=OVERWRITE}.
      * @param json The MultipartFile containing the JSON file with film data.
-     * @return ResponseEntity with a FilmsUploadResponse containing numbers of film data imported and failed to import.
+     * @param mode The @link{ua.holovchenko.filmbase.controllers.dto.ImportMode} for existing titles, SKIP by default.
+     * @return ResponseEntity accepting the ImportJobResponse of the staged job, with its location,
+     * or a bad request response if the file isn't a JSON array of films.
      */
     @PostMapping(path = "/upload")
-    public ResponseEntity<FilmsUploadResponse> uploadFilms(@RequestParam("file") MultipartFile json) {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        TypeReference<List<FilmUploadDto>> listType = new TypeReference<>() {};
-        try {
-            List<FilmUploadDto> dtoList = mapper.readValue(json.getBytes(), listType);
-            return ResponseEntity.ok(service.uploadJson(dtoList));
+    public ResponseEntity<ImportJobResponse> uploadFilms(@RequestParam("file") MultipartFile json,
+                                                         @RequestParam(name = "mode", defaultValue = "SKIP") ImportMode mode) {
+        try (InputStream inputStream = json.getInputStream()) {
+            ImportJobResponse job = service.submitUpload(inputStream, mode);
+            return ResponseEntity.accepted().location(URI.create("api/films/upload/" + job.getId())).body(job);
         } catch (IOException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * Controller for POST api/films/upload/csv endpoint.
+     * Upload films from a CSV file with a header line of
+     * {@code title,year,directed by,written by,produced by,starring,running time,genres},
+     * names in the list columns separated by {@code ;}. The file is imported in bulk before the response.
+     * Films whose title already exists are skipped, or overwritten with {@code mode=OVERWRITE}.
+     * @param csv The MultipartFile containing the CSV file with film data.
+     * @param mode The @link{ua.holovchenko.filmbase.controllers.dto.ImportMode} for existing titles, SKIP by default.
+     * @return ResponseEntity with the FilmsUploadResponse containing import statistics,
+     * or a bad request response if the file isn't CSV of these columns.
+     */
+    @PostMapping(path = "/upload/csv")
+    public ResponseEntity<FilmsUploadResponse> uploadCsv(@RequestParam("file") MultipartFile csv,
+                                                         @RequestParam(name = "mode", defaultValue = "SKIP") ImportMode mode) {
+        try (InputStream inputStream = csv.getInputStream()) {
+            return ResponseEntity.ok(service.uploadCsv(inputStream, mode));
+        } catch (IOException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Controller for GET api/films/upload/{jobId} endpoint.
+     * Get progress of an upload import job; once it is done, its result holds the final import statistics.
+     * @param jobId The ID of the import job.
+     * @return ResponseEntity with the ImportJobResponse or a not found response if the job does not exist.
+     */
+    @GetMapping("/upload/{jobId}")
+    public ResponseEntity<ImportJobResponse> getUploadJob(@PathVariable Long jobId) {
+        try {
+            return ResponseEntity.ok(service.getUploadJob(jobId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Check whether an Accept-Encoding header lists gzip, or any encoding, with a non-zero quality.
+     * @param acceptEncoding The header value, or null if it is absent.
+     * @return True if a gzip-compressed response is accepted.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean rejected = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        rejected = Double.parseDouble(param.substring(2)) == 0;
+                    } catch (NumberFormatException e) {
+                        rejected = true;
+                    }
+                }
+            }
+            if (!rejected) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Validate a FilmModel object.
      * @param model The FilmModel object to be validated.
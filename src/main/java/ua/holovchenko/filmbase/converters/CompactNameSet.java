@@ -0,0 +1,92 @@
+package ua.holovchenko.filmbase.converters;
+
+import java.util.*;
+
+/**
+ * Immutable set of names backed by a single sorted array.
+ * Iterates in the natural order of the names, so serialized models list them in a stable order
+ * that doesn't depend on hash codes, at a fraction of the allocations of hash sets.
+ * Intended for the handful of names a film has.
+ */
+public final class CompactNameSet extends AbstractSet<String> {
+    private static final CompactNameSet EMPTY = new CompactNameSet(new String[0]);
+
+    private final String[] names;
+
+    private CompactNameSet(String[] names) {
+        this.names = names;
+    }
+
+    /**
+     * Copies a collection of distinct names.
+     * @param names The names.
+     * @return The set.
+     */
+    public static CompactNameSet copyOf(Collection<String> names) {
+        return sorted(names.toArray(new String[0]), names.size());
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < names.length;
+            }
+
+            @Override
+            public String next() {
+                if (next == names.length) {
+                    throw new NoSuchElementException();
+                }
+                return names[next++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String name && Arrays.binarySearch(names, name) >= 0;
+    }
+
+    /**
+     * Collects distinct names one by one.
+     */
+    public static final class Builder {
+        private String[] names = new String[4];
+        private int size;
+
+        /**
+         * @param name The name, distinct from the names added before.
+         */
+        public void add(String name) {
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            names[size++] = name;
+        }
+
+        /**
+         * @return The set of added names.
+         */
+        public CompactNameSet build() {
+            return sorted(names, size);
+        }
+    }
+
+    private static CompactNameSet sorted(String[] source, int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        String[] names = Arrays.copyOf(source, size);
+        Arrays.sort(names);
+        return new CompactNameSet(names);
+    }
+}
@@ -0,0 +1,46 @@
+package ua.holovchenko.filmbase.converters;
+
+import com.opencsv.bean.AbstractBeanField;
+import com.opencsv.exceptions.CsvDataTypeMismatchException;
+import ua.holovchenko.filmbase.controllers.dto.FilmListDto;
+import ua.holovchenko.filmbase.models.DirectorModel;
+
+/**
+ * Converter writing the director of a film to CSV reports.
+ * The layout is the one reports have always had, spelled out here instead of being left to the model's toString,
+ * so that reports copied by the database can build the same column from {@link #sql(String)}.
+ */
+public class DirectorCsvConverter extends AbstractBeanField<FilmListDto, String> {
+    private static final String PREFIX = "DirectorModel(id=";
+    private static final String NAME = ", name=";
+    private static final String SUFFIX = ", films=[])";
+
+    /**
+     * Formats a director for a CSV report.
+     * @param director The director, or null if the film has none.
+     * @return The column value, empty for no director.
+     */
+    public static String format(DirectorModel director) {
+        return director == null ? "" : PREFIX + director.getId() + NAME + director.getName() + SUFFIX;
+    }
+
+    /**
+     * SQL expression of the same column value as {@link #format(DirectorModel)}.
+     * @param alias The alias of the joined directors table.
+     * @return The expression.
+     */
+    public static String sql(String alias) {
+        return "coalesce('%s' || %s.id || '%s' || coalesce(%2$s.name, 'null') || '%s', '')"
+                .formatted(PREFIX, alias, NAME, SUFFIX);
+    }
+
+    @Override
+    protected String convertToWrite(Object value) {
+        return format((DirectorModel) value);
+    }
+
+    @Override
+    protected Object convert(String value) throws CsvDataTypeMismatchException {
+        throw new CsvDataTypeMismatchException(value, DirectorModel.class, "Directors are only written to reports");
+    }
+}
@@ -2,11 +2,11 @@ package ua.holovchenko.filmbase.converters;
 
 import ua.holovchenko.filmbase.entities.Director;
 import ua.holovchenko.filmbase.entities.Film;
+import ua.holovchenko.filmbase.entities.FilmPerson;
 import ua.holovchenko.filmbase.models.DirectorModel;
 import ua.holovchenko.filmbase.models.FilmModel;
 
-import java.util.Arrays;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import static ua.holovchenko.filmbase.converters.DirectorModelEntityConverter.directorEntityToModel;
 import static ua.holovchenko.filmbase.converters.DirectorModelEntityConverter.directorModelToEntity;
@@ -22,17 +22,7 @@ public class FilmModelEntityConverter {
      * @return The converted Film model.
      */
     public static FilmModel filmEntityToModel(Film film) {
-        return new FilmModel(
-                film.getId(),
-                film.getTitle(),
-                film.getYear(),
-                directorEntityToModel(film.getDirectedBy()),
-                Arrays.stream(film.getWrittenBy().split(", ")).collect(Collectors.toSet()),
-                Arrays.stream(film.getProducedBy().split(", ")).collect(Collectors.toSet()),
-                Arrays.stream(film.getStarring().split(", ")).collect(Collectors.toSet()),
-                film.getRunningTime(),
-                Arrays.stream(film.getGenres().split(", ")).collect(Collectors.toSet())
-        );
+        return filmEntityToModel(film, directorEntityToModel(film.getDirectedBy()));
     }
 
     /**
@@ -46,11 +36,11 @@ public class FilmModelEntityConverter {
                 filmModel.getTitle(),
                 filmModel.getYear(),
                 directorModelToEntity(filmModel.getDirectedBy()),
-                filmModel.getWrittenBy().stream().reduce((s, s2) -> s2 + ", " + s).orElseGet(STRING_UNKNOWN),
-                filmModel.getProducedBy().stream().reduce((s, s2) -> s2 + ", " + s).orElseGet(STRING_UNKNOWN),
-                filmModel.getStarring().stream().reduce((s, s2) -> s2 + ", " + s).orElseGet(STRING_UNKNOWN),
+                orUnknown(filmModel.getWrittenBy()),
+                orUnknown(filmModel.getProducedBy()),
+                orUnknown(filmModel.getStarring()),
                 filmModel.getRunningTime(),
-                filmModel.getGenres().stream().reduce((s, s2) -> s2 + ", " + s).orElseGet(STRING_UNKNOWN)
+                orUnknown(filmModel.getGenres())
         );
     }
 
@@ -61,16 +51,26 @@ public class FilmModelEntityConverter {
      * @return The converted Film model.
      */
     public static FilmModel filmEntityToModel(Film film, DirectorModel directorModel) {
+        CompactNameSet.Builder writers = new CompactNameSet.Builder();
+        CompactNameSet.Builder producers = new CompactNameSet.Builder();
+        CompactNameSet.Builder stars = new CompactNameSet.Builder();
+        for (FilmPerson person : film.getPeople()) {
+            switch (person.getRole()) {
+                case WRITER -> writers.add(person.getName());
+                case PRODUCER -> producers.add(person.getName());
+                case STAR -> stars.add(person.getName());
+            }
+        }
         return new FilmModel(
                 film.getId(),
                 film.getTitle(),
                 film.getYear(),
                 directorModel,
-                Arrays.stream(film.getWrittenBy().split(", ")).collect(Collectors.toSet()),
-                Arrays.stream(film.getProducedBy().split(", ")).collect(Collectors.toSet()),
-                Arrays.stream(film.getStarring().split(", ")).collect(Collectors.toSet()),
+                writers.build(),
+                producers.build(),
+                stars.build(),
                 film.getRunningTime(),
-                Arrays.stream(film.getGenres().split(", ")).collect(Collectors.toSet())
+                CompactNameSet.copyOf(film.getGenres())
         );
     }
 
@@ -86,14 +86,23 @@ public class FilmModelEntityConverter {
                 filmModel.getTitle(),
                 filmModel.getYear(),
                 director,
-                filmModel.getWrittenBy().stream().reduce((s, s2) -> s2 + ", " + s).orElseGet(STRING_UNKNOWN),
-                filmModel.getProducedBy().stream().reduce((s, s2) -> s2 + ", " + s).orElseGet(STRING_UNKNOWN),
-                filmModel.getStarring().stream().reduce((s, s2) -> s2 + ", " + s).orElseGet(STRING_UNKNOWN),
+                orUnknown(filmModel.getWrittenBy()),
+                orUnknown(filmModel.getProducedBy()),
+                orUnknown(filmModel.getStarring()),
                 filmModel.getRunningTime(),
-                filmModel.getGenres().stream().reduce((s, s2) -> s2 + ", " + s).orElseGet(STRING_UNKNOWN)
+                orUnknown(filmModel.getGenres())
         );
     }
 
+    /**
+     * Replaces an empty set of values with the single unknown value.
+     * @param values The set of values.
+     * @return The values, or a set of the unknown value if there are none.
+     */
+    private static Set<String> orUnknown(Set<String> values) {
+        return values.isEmpty() ? Set.of(STRING_UNKNOWN.get()) : values;
+    }
+
     /**
      * Supplier for unknown string.
      */
@@ -0,0 +1,40 @@
+package ua.holovchenko.filmbase.converters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Intern dictionary for genre and person names.
+ * Names repeat across films ("drama", a prolific director's writers), so equal names read from
+ * the database share one String instance instead of one per film.
+ * The dictionary is capped in size and keeps the names read most often, so a catalog of mostly unique
+ * names can't grow it without bound; a name evicted from it is only no longer shared by films read later.
+ */
+@Component
+public class NameDictionary {
+    private final Cache<String, String> names;
+
+    /**
+     * Constructor for NameDictionary.
+     * @param maximumSize The maximal number of names kept.
+     */
+    @Autowired
+    public NameDictionary(@Value("${filmbase.names.maximum-size:100000}") long maximumSize) {
+        this.names = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * @param name The name, may be null.
+     * @return The shared instance equal to the name.
+     */
+    public String intern(String name) {
+        return name == null ? null : names.get(name, Function.identity());
+    }
+}
@@ -2,6 +2,8 @@ package ua.holovchenko.filmbase.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.proxy.HibernateProxy;
 
 import java.util.LinkedHashSet;
@@ -18,16 +20,24 @@ import java.util.Set;
 @ToString
 @Entity
 @Table(name = "directors")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "directors")
 public class Director {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "directors_seq")
+    @SequenceGenerator(name = "directors_seq", sequenceName = "directors_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "name", nullable = false, length = Integer.MAX_VALUE)
     private String name;
 
-    @OneToMany(mappedBy = "id", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @OneToMany(mappedBy = "directedBy", fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "director_films")
     @ToString.Exclude
     private Set<Film> films = new LinkedHashSet<>();
 
@@ -2,19 +2,27 @@ package ua.holovchenko.filmbase.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Represents a Film entity.
  */
-@AllArgsConstructor
 @RequiredArgsConstructor
 @Getter
 @Setter
 @Entity
 @Table(name = "films")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "films")
 public class Film {
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "films_seq")
+    @SequenceGenerator(name = "films_seq", sequenceName = "films_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "title", nullable = false, length = Integer.MAX_VALUE)
@@ -27,20 +35,26 @@ public class Film {
     @JoinColumn(name = "directed_by")
     private Director directedBy;
 
-    @Column(name = "written_by", length = Integer.MAX_VALUE)
-    private String writtenBy;
-
-    @Column(name = "produced_by", length = Integer.MAX_VALUE)
-    private String producedBy;
-
-    @Column(name = "starring", length = Integer.MAX_VALUE)
-    private String starring;
-
     @Column(name = "running_time")
     private Integer runningTime;
 
-    @Column(name = "genres", length = Integer.MAX_VALUE)
-    private String genres;
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @ElementCollection
+    @CollectionTable(name = "film_genres", joinColumns = @JoinColumn(name = "film_id"))
+    @Column(name = "genre", nullable = false, length = Integer.MAX_VALUE)
+    @Convert(converter = InternedNameConverter.class)
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "film_genres")
+    private Set<String> genres = new HashSet<>();
+
+    @ElementCollection
+    @CollectionTable(name = "film_people", joinColumns = @JoinColumn(name = "film_id"))
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "film_people")
+    private Set<FilmPerson> people = new HashSet<>();
 
     /**
      * Constructor for a Film with all attributes.
@@ -53,14 +67,37 @@ public class Film {
      * @param runningTime The duration of the film in minutes.
      * @param genres The genres of the film.
      */
-    public Film(String title, Integer year, Director directedBy, String writtenBy, String producedBy, String starring, Integer runningTime, String genres) {
+    public Film(String title, Integer year, Director directedBy, Set<String> writtenBy, Set<String> producedBy, Set<String> starring, Integer runningTime, Set<String> genres) {
         this.title = title;
         this.year = year;
         this.directedBy = directedBy;
-        this.writtenBy = writtenBy;
-        this.producedBy = producedBy;
-        this.starring = starring;
         this.runningTime = runningTime;
-        this.genres = genres;
+        this.genres = new HashSet<>(genres);
+        addPeople(PersonRole.WRITER, writtenBy);
+        addPeople(PersonRole.PRODUCER, producedBy);
+        addPeople(PersonRole.STAR, starring);
+    }
+
+    /**
+     * Constructor for a Film with all attributes and a known id.
+     * @param id The id of the film.
+     * @param title The title of the film.
+     * @param year The year the film was released.
+     * @param directedBy The Director who directed the film.
+     * @param writtenBy The writers of the film.
+     * @param producedBy The producers of the film.
+     * @param starring The main actors of the film.
+     * @param runningTime The duration of the film in minutes.
+     * @param genres The genres of the film.
+     */
+    public Film(long id, String title, Integer year, Director directedBy, Set<String> writtenBy, Set<String> producedBy, Set<String> starring, Integer runningTime, Set<String> genres) {
+        this(title, year, directedBy, writtenBy, producedBy, starring, runningTime, genres);
+        this.id = id;
+    }
+
+    private void addPeople(PersonRole role, Set<String> names) {
+        for (String name : names) {
+            people.add(new FilmPerson(role, name));
+        }
     }
 }
@@ -0,0 +1,24 @@
+package ua.holovchenko.filmbase.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Represents a person taking part in a film in a certain role.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
+@Embeddable
+public class FilmPerson {
+    @Enumerated(EnumType.STRING)
+    @Column(name = "role", nullable = false, length = 16)
+    private PersonRole role;
+
+    @Column(name = "name", nullable = false, length = Integer.MAX_VALUE)
+    @Convert(converter = InternedNameConverter.class)
+    private String name;
+}
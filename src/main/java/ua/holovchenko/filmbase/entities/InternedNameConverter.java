@@ -0,0 +1,34 @@
+package ua.holovchenko.filmbase.entities;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Autowired;
+import ua.holovchenko.filmbase.converters.NameDictionary;
+
+/**
+ * Shares equal genre and person names read from the database through {@link NameDictionary}.
+ * Hibernate creates it through the Spring bean container, which injects the dictionary.
+ */
+@Converter
+public class InternedNameConverter implements AttributeConverter<String, String> {
+    private final NameDictionary names;
+
+    /**
+     * Constructor for InternedNameConverter.
+     * @param names The dictionary of shared names.
+     */
+    @Autowired
+    public InternedNameConverter(NameDictionary names) {
+        this.names = names;
+    }
+
+    @Override
+    public String convertToDatabaseColumn(String name) {
+        return name;
+    }
+
+    @Override
+    public String convertToEntityAttribute(String name) {
+        return names.intern(name);
+    }
+}
@@ -0,0 +1,10 @@
+package ua.holovchenko.filmbase.entities;
+
+/**
+ * Role of a person in a film's crew or cast.
+ */
+public enum PersonRole {
+    WRITER,
+    PRODUCER,
+    STAR
+}
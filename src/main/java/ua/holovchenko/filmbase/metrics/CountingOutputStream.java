@@ -0,0 +1,48 @@
+package ua.holovchenko.filmbase.metrics;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream adding the number of bytes written through it to a counter.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+    private final Counter bytes;
+
+    /**
+     * Constructor for CountingOutputStream.
+     * @param out The underlying output stream.
+     * @param bytes The counter of written bytes.
+     */
+    public CountingOutputStream(OutputStream out, Counter bytes) {
+        super(out);
+        this.bytes = bytes;
+    }
+
+    /**
+     * Writes a byte and counts it.
+     * @param b The byte to write.
+     * @throws IOException if the underlying stream fails.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        bytes.increment();
+    }
+
+    /**
+     * Writes a part of an array and counts its bytes.
+     * @param b The data.
+     * @param off The start offset in the data.
+     * @param len The number of bytes to write.
+     * @throws IOException if the underlying stream fails.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        bytes.increment(len);
+    }
+}
@@ -0,0 +1,121 @@
+package ua.holovchenko.filmbase.metrics;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Actuator endpoint exposing Hibernate statistics per query, entity and collection,
+ * together with the latest statements slower than the configured threshold.
+ * It reveals the SQL of the application, so it isn't exposed over HTTP by default; it is read-only,
+ * as the statistics also feed the hibernate metrics, whose counters must not go back.
+ */
+@Component
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+    private final Statistics statistics;
+    private final SlowQueryLog slowQueryLog;
+
+    /**
+     * Statistics of a query.
+     * @param query The query string.
+     * @param executions The number of executions.
+     * @param maxTime The longest execution time in milliseconds.
+     * @param avgTime The average execution time in milliseconds.
+     * @param totalTime The total execution time in milliseconds.
+     * @param rows The number of rows returned by all executions.
+     * @param cacheHits The number of query cache hits.
+     */
+    public record QueryStats(String query, long executions, long maxTime, double avgTime, long totalTime,
+                             long rows, long cacheHits) {
+    }
+
+    /**
+     * Statistics of an entity or a collection role.
+     * @param name The entity name or the collection role.
+     * @param loads The number of loaded instances.
+     * @param fetches The number of instances fetched by their own statement.
+     * @param cacheHits The number of second-level cache hits.
+     * @param cacheMisses The number of second-level cache misses.
+     */
+    public record FetchStats(String name, long loads, long fetches, long cacheHits, long cacheMisses) {
+    }
+
+    /**
+     * Content of the endpoint.
+     * @param queries The statistics of executed queries, the longest total time first.
+     * @param entities The statistics of entities, the most fetched first.
+     * @param collections The statistics of collections, the most fetched first.
+     * @param prepareStatementCount The number of prepared JDBC statements.
+     * @param slowQueryThreshold The threshold of slow statements in milliseconds.
+     * @param slowQueries The latest slow statements, the latest first.
+     */
+    public record HibernateStatistics(List<QueryStats> queries, List<FetchStats> entities, List<FetchStats> collections,
+                                      long prepareStatementCount, long slowQueryThreshold,
+                                      List<SlowQueryLog.SlowQuery> slowQueries) {
+    }
+
+    /**
+     * Constructor for HibernateStatisticsEndpoint.
+     * @param entityManagerFactory The entity manager factory whose statistics are exposed.
+     * @param slowQueryLog The log of slow statements.
+     */
+    @Autowired
+    public HibernateStatisticsEndpoint(EntityManagerFactory entityManagerFactory, SlowQueryLog slowQueryLog) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    /**
+     * Reads the statistics.
+     * @return The HibernateStatistics collected since the start or the last reset.
+     */
+    @ReadOperation
+    public HibernateStatistics statistics() {
+        List<QueryStats> queries = Arrays.stream(statistics.getQueries())
+                .map(this::queryStats)
+                .filter(stats -> stats.executions() > 0)
+                .sorted(Comparator.comparingLong(QueryStats::totalTime).reversed())
+                .toList();
+        List<FetchStats> entities = Arrays.stream(statistics.getEntityNames())
+                .map(this::entityStats)
+                .sorted(Comparator.comparingLong(FetchStats::fetches).reversed())
+                .toList();
+        List<FetchStats> collections = Arrays.stream(statistics.getCollectionRoleNames())
+                .map(this::collectionStats)
+                .sorted(Comparator.comparingLong(FetchStats::fetches).reversed())
+                .toList();
+        return new HibernateStatistics(queries, entities, collections, statistics.getPrepareStatementCount(),
+                slowQueryLog.getThresholdMillis(), slowQueryLog.getQueries());
+    }
+
+    private QueryStats queryStats(String query) {
+        QueryStatistics stats = statistics.getQueryStatistics(query);
+        return new QueryStats(query, stats.getExecutionCount(), stats.getExecutionMaxTime(),
+                stats.getExecutionAvgTimeAsDouble(), stats.getExecutionTotalTime(),
+                stats.getExecutionRowCount(), stats.getCacheHitCount());
+    }
+
+    private FetchStats entityStats(String entityName) {
+        EntityStatistics stats = statistics.getEntityStatistics(entityName);
+        return new FetchStats(entityName, stats.getLoadCount(), stats.getFetchCount(),
+                stats.getCacheHitCount(), stats.getCacheMissCount());
+    }
+
+    private FetchStats collectionStats(String role) {
+        CollectionStatistics stats = statistics.getCollectionStatistics(role);
+        return new FetchStats(role, stats.getLoadCount(), stats.getFetchCount(),
+                stats.getCacheHitCount(), stats.getCacheMissCount());
+    }
+}
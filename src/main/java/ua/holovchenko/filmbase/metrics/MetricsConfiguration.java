@@ -0,0 +1,71 @@
+package ua.holovchenko.filmbase.metrics;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration of application metrics.
+ * Enables @Timed on beans and passes executed JDBC statements to the statement listeners,
+ * counting them per request and capturing slow ones.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfiguration implements WebMvcConfigurer {
+    private final StatementCounter statementCounter;
+
+    /**
+     * Constructor for MetricsConfiguration.
+     * @param statementCounter The counter of JDBC statements per request.
+     */
+    public MetricsConfiguration(StatementCounter statementCounter) {
+        this.statementCounter = statementCounter;
+    }
+
+    /**
+     * Aspect recording timers of methods annotated with @Timed.
+     * @param registry The registry the timers are recorded to.
+     * @return The TimedAspect.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    /**
+     * Wraps the data source, so every executed statement is reported to the statement listeners.
+     * @param listeners The provider of the statement listeners, resolved lazily.
+     * @return The BeanPostProcessor wrapping data sources.
+     */
+    @Bean
+    public static BeanPostProcessor listeningDataSource(ObjectProvider<QueryExecutionListener> listeners) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource)) {
+                    return bean;
+                }
+                ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(dataSource).name(beanName);
+                listeners.orderedStream().forEach(builder::listener);
+                return builder.build();
+            }
+        };
+    }
+
+    /**
+     * Registers the statement counter for all requests.
+     * @param registry The interceptor registry.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(statementCounter);
+    }
+}
@@ -0,0 +1,138 @@
+package ua.holovchenko.filmbase.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ring buffer of the latest JDBC statements slower than a threshold, with their bind parameters.
+ * Values of bind parameters are masked unless {@code filmbase.slow-query.include-parameters} is set,
+ * as they carry the data of users.
+ * The time of a statement is the time of its execution call, rows fetched later by a cursor are not included.
+ */
+@Component
+public class SlowQueryLog implements QueryExecutionListener {
+    private static final int MAX_VALUE_LENGTH = 200;
+    private static final String MASK = "?";
+
+    private final long thresholdMillis;
+    private final int capacity;
+    private final boolean includeParameters;
+    private final ArrayDeque<SlowQuery> queries;
+
+    /**
+     * A statement slower than the threshold.
+     * @param at The time the statement completed.
+     * @param elapsedMillis The execution time in milliseconds.
+     * @param success Whether the statement succeeded.
+     * @param query The SQL of the statement.
+     * @param parameters The bind parameters ordered by index, one list per batch entry; masked values are {@code ?}.
+     */
+    public record SlowQuery(Instant at, long elapsedMillis, boolean success, String query, List<List<String>> parameters) {
+    }
+
+    /**
+     * Constructor for SlowQueryLog.
+     * @param threshold The execution time from which a statement is captured.
+     * @param capacity The number of latest slow statements kept.
+     * @param includeParameters Whether values of bind parameters are kept rather than masked.
+     */
+    @Autowired
+    public SlowQueryLog(@Value("${filmbase.slow-query.threshold:500ms}") Duration threshold,
+                        @Value("${filmbase.slow-query.capacity:100}") int capacity,
+                        @Value("${filmbase.slow-query.include-parameters:false}") boolean includeParameters) {
+        this.thresholdMillis = threshold.toMillis();
+        this.capacity = capacity;
+        this.includeParameters = includeParameters;
+        this.queries = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Does nothing, statements are captured after execution.
+     * @param execInfo The execution info.
+     * @param queryInfoList The executed queries.
+     */
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    /**
+     * Captures the statement if its execution took at least the threshold.
+     * The oldest captured statement is dropped when the buffer is full.
+     * @param execInfo The execution info.
+     * @param queryInfoList The executed queries.
+     */
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (execInfo.getElapsedTime() < thresholdMillis || capacity <= 0) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<SlowQuery> captured = new ArrayList<>(queryInfoList.size());
+        for (QueryInfo queryInfo : queryInfoList) {
+            captured.add(new SlowQuery(now, execInfo.getElapsedTime(), execInfo.isSuccess(),
+                    queryInfo.getQuery(), parameters(queryInfo)));
+        }
+        synchronized (queries) {
+            for (SlowQuery query : captured) {
+                if (queries.size() == capacity) {
+                    queries.pollFirst();
+                }
+                queries.addLast(query);
+            }
+        }
+    }
+
+    /**
+     * Returns the captured statements.
+     * @return The slow statements, the latest first.
+     */
+    public List<SlowQuery> getQueries() {
+        synchronized (queries) {
+            List<SlowQuery> latestFirst = new ArrayList<>(queries);
+            Collections.reverse(latestFirst);
+            return latestFirst;
+        }
+    }
+
+    /**
+     * Returns the threshold of captured statements.
+     * @return The threshold in milliseconds.
+     */
+    public long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    private List<List<String>> parameters(QueryInfo queryInfo) {
+        List<List<String>> parameters = new ArrayList<>(queryInfo.getParametersList().size());
+        for (List<ParameterSetOperation> operations : queryInfo.getParametersList()) {
+            List<String> values = new ArrayList<>(operations.size());
+            operations.stream()
+                    .filter(operation -> operation.getArgs().length > 1)
+                    .sorted(Comparator.comparingInt(operation -> operation.getArgs()[0] instanceof Integer index ? index : 0))
+                    .forEach(operation -> values.add(ParameterSetOperation.isSetNullParameterOperation(operation)
+                            ? null
+                            : includeParameters ? format(operation.getArgs()[1]) : MASK));
+            parameters.add(values);
+        }
+        return parameters;
+    }
+
+    private static String format(Object value) {
+        String text = value instanceof Object[] array ? Arrays.deepToString(array) : String.valueOf(value);
+        return text.length() > MAX_VALUE_LENGTH ? text.substring(0, MAX_VALUE_LENGTH) + "..." : text;
+    }
+}
@@ -0,0 +1,135 @@
+package ua.holovchenko.filmbase.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts JDBC statements executed while handling a request and records them per endpoint.
+ * The count of a request is bound to the handling thread and carried over to the
+ * async executor, so statements of streamed responses are counted too.
+ */
+@Component
+public class StatementCounter implements QueryExecutionListener, AsyncHandlerInterceptor, TaskDecorator {
+    private static final ThreadLocal<LongAdder> CURRENT = new ThreadLocal<>();
+    private static final String ATTRIBUTE = StatementCounter.class.getName();
+
+    private final MeterRegistry registry;
+
+    /**
+     * Constructor for StatementCounter.
+     * @param registry The registry the statement counts are recorded to.
+     */
+    @Autowired
+    public StatementCounter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Does nothing, statements are counted after execution.
+     * @param execInfo The execution info.
+     * @param queryInfoList The executed queries.
+     */
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    /**
+     * Counts an executed statement of the current request, if any.
+     * A batch counts as one statement.
+     * @param execInfo The execution info.
+     * @param queryInfoList The executed queries.
+     */
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        LongAdder count = CURRENT.get();
+        if (count != null) {
+            count.increment();
+        }
+    }
+
+    /**
+     * Binds the count of the request to the handling thread.
+     * An async dispatch continues the count started by the initial one.
+     * @param request The current request.
+     * @param response The current response.
+     * @param handler The handler of the request.
+     * @return Always true.
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        LongAdder count = (LongAdder) request.getAttribute(ATTRIBUTE);
+        if (count == null) {
+            count = new LongAdder();
+            request.setAttribute(ATTRIBUTE, count);
+        }
+        CURRENT.set(count);
+        return true;
+    }
+
+    /**
+     * Unbinds the count from the handling thread when the request goes async.
+     * @param request The current request.
+     * @param response The current response.
+     * @param handler The handler of the request.
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        CURRENT.remove();
+    }
+
+    /**
+     * Records the count of the completed request, tagged by endpoint and method.
+     * @param request The current request.
+     * @param response The current response.
+     * @param handler The handler of the request.
+     * @param ex The exception thrown by the handler, if any.
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        CURRENT.remove();
+        LongAdder count = (LongAdder) request.getAttribute(ATTRIBUTE);
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("filmbase.jdbc.statements")
+                .description("JDBC statements executed per request")
+                .baseUnit("statements")
+                .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+                .tag("method", request.getMethod())
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(count.sum());
+    }
+
+    /**
+     * Carries the count of the submitting thread over to the task.
+     * @param runnable The task submitted to the executor.
+     * @return The task running with the count bound.
+     */
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        LongAdder count = CURRENT.get();
+        if (count == null) {
+            return runnable;
+        }
+        return () -> {
+            CURRENT.set(count);
+            try {
+                runnable.run();
+            } finally {
+                CURRENT.remove();
+            }
+        };
+    }
+}
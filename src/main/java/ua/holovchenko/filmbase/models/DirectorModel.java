@@ -1,5 +1,6 @@
 package ua.holovchenko.filmbase.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.*;
 
 import java.io.Serializable;
@@ -18,6 +19,7 @@ import java.util.Set;
 public class DirectorModel implements Serializable {
     private long id;
     private String name;
+    @JsonIgnoreProperties("directed by")
     private Set<FilmModel> films = new LinkedHashSet<>();
 
     public DirectorModel(String name) {
@@ -1,9 +1,18 @@
 package ua.holovchenko.filmbase.repositories;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ua.holovchenko.filmbase.controllers.dto.DirectorListDto;
 import ua.holovchenko.filmbase.entities.Director;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Repository for Director entities
  */
@@ -12,4 +21,31 @@ public interface DirectorRepository extends JpaRepository<Director, Long>, JpaSp
     boolean existsByName(String name);
 
     Director findByName(String directedBy);
-}
\ No newline at end of file
+
+    List<Director> findAllByNameIn(Collection<String> names);
+
+    /**
+     * Page of directors with numbers of their films, counted in one grouped query.
+     */
+    @Query(value = "select new ua.holovchenko.filmbase.controllers.dto.DirectorListDto(d.id, d.name, count(f.id)) " +
+            "from Director d left join d.films f group by d.id, d.name order by d.id",
+            countQuery = "select count(d) from Director d")
+    Page<DirectorListDto> findDirectorList(Pageable pageable);
+
+    /**
+     * Quoted strong ETag of a page of {@link #findDirectorList}, read from versions and counts only:
+     * the number of directors, and the ids, versions and numbers of films of the directors on the page.
+     */
+    @Query(value = "select '\"' || (select count(*) from directors) || '.' || coalesce(" +
+            "md5(string_agg(p.id || ':' || p.version || ':' || p.films, ',' order by p.id)), '') || '\"' " +
+            "from (select d.id, d.version, (select count(*) from films f where f.directed_by = d.id) as films " +
+            "from directors d order by d.id limit :limit offset :offset) p",
+            nativeQuery = true)
+    String findListEtag(@Param("limit") int limit, @Param("offset") long offset);
+
+    /**
+     * Version of a director, without loading it.
+     */
+    @Query("select d.version from Director d where d.id = :id")
+    Optional<Long> findVersionById(@Param("id") long id);
+}
@@ -0,0 +1,179 @@
+package ua.holovchenko.filmbase.repositories;
+
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ua.holovchenko.filmbase.controllers.dto.FilmsUploadResponse;
+import ua.holovchenko.filmbase.controllers.dto.ImportMode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Repository bulk-loading CSV uploads of films.
+ * The file is streamed into a temporary staging table with {@code COPY ... FROM STDIN} as it is,
+ * without being parsed by the application; directors are then resolved and films merged into {@code films}
+ * with a few set-based statements, so the cost per row is that of the database's own bulk paths.
+ * Search vector triggers are deferred meanwhile and the vectors of the written films computed once at the end,
+ * in one set-based pass, instead of row by row after each of the films, genres and people statements.
+ * Must be called in a transaction: the staging tables live until it ends.
+ */
+@Repository
+public class FilmCopyRepository {
+    /**
+     * Columns of a CSV upload, in the order of the file. Names in the list columns are separated by {@code ;}.
+     */
+    public static final String CSV_HEADER = "title,year,directed by,written by,produced by,starring,running time,genres";
+
+    private static final String CREATE_STAGING = """
+            create temp table film_upload (
+                title varchar, year int, directed_by varchar, written_by varchar, produced_by varchar,
+                starring varchar, running_time int, genres varchar,
+                line bigint generated always as identity
+            ) on commit drop
+            """;
+    private static final String COPY = """
+            copy film_upload (title, year, directed_by, written_by, produced_by, starring, running_time, genres)
+            from stdin with (format csv, header true)
+            """;
+    private static final String RESOLVE = """
+            create temp table film_upload_valid on commit drop as
+            select u.line, u.title, u.year, d.id as director_id, u.written_by, u.produced_by, u.starring,
+                   u.running_time, u.genres,
+                   row_number() over (partition by u.title order by u.line %s) as occurrence
+            from film_upload u
+            join directors d on d.name = u.directed_by
+            where u.title <> ''
+            """;
+    private static final String MERGE = """
+            with blocks as (
+                select array_agg(v order by v) as v
+                from (select nextval('films_seq') as v
+                      from generate_series(1, ((select count(*) from film_upload_valid) + %1$d - 1) / %1$d)) s
+            ), written as (
+                insert into films (id, title, year, directed_by, running_time)
+                select b.v[(c.n - 1) / %1$d + 1] - %1$d + 1 + (c.n - 1) %% %1$d, c.title, c.year, c.director_id, c.running_time
+                from (select *, row_number() over (order by line) as n from film_upload_valid) c
+                cross join blocks b
+                order by c.line
+                on conflict (title) %2$s
+                returning id, title, (xmax = 0) as inserted
+            )
+            insert into film_upload_written select * from written
+            """;
+    private static final String DO_NOTHING = "do nothing";
+    private static final String DO_UPDATE = """
+            do update set year = excluded.year, directed_by = excluded.directed_by, running_time = excluded.running_time,
+                          version = films.version + 1
+            """;
+    /**
+     * Splits a column of names separated by {@code ;}, the single unknown name standing in for none.
+     */
+    private static final String NAMES = """
+            unnest(coalesce(nullif(array(
+                select distinct trim(n) from unnest(string_to_array(%s, ';')) n where trim(n) <> ''
+            ), '{}'), '{Unknown}'))
+            """;
+    private static final String INSERT_GENRES = """
+            insert into film_genres (film_id, genre)
+            select w.id, g.genre
+            from film_upload_written w
+            join film_upload_valid v on v.title = w.title
+            cross join lateral %s as g(genre)
+            """.formatted(NAMES.formatted("v.genres"));
+    private static final String INSERT_PEOPLE = """
+            insert into film_people (film_id, role, name)
+            select w.id, r.role, p.name
+            from film_upload_written w
+            join film_upload_valid v on v.title = w.title
+            cross join lateral (values ('WRITER', v.written_by), ('PRODUCER', v.produced_by), ('STAR', v.starring)) as r(role, names)
+            cross join lateral %s as p(name)
+            """.formatted(NAMES.formatted("r.names"));
+
+    private static final String UPDATE_SEARCH_VECTORS = """
+            update films f set search_vector = v.search_vector
+            from films_search_vectors(array(select id from film_upload_written)) v
+            where f.id = v.film_id
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Films merged from a CSV upload.
+     * @param response The import statistics.
+     * @param filmIds The ids of inserted and updated films.
+     */
+    public record CopiedFilms(FilmsUploadResponse response, List<Long> filmIds) {
+    }
+
+    /**
+     * Constructor for FilmCopyRepository.
+     * @param jdbc The JDBC template.
+     */
+    @Autowired
+    public FilmCopyRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Loads a CSV upload with a header line of {@link #CSV_HEADER} and merges its films.
+     * Films with an empty title or an unknown director fail; a title repeated in the file is applied
+     * as if the films were written one by one: the first one wins when skipping, the last one when overwriting.
+     * Overwritten films keep their id and get the uploaded genres and people instead of their own.
+     * @param csv The input stream with the CSV file.
+     * @param mode Whether films with existing titles are skipped or overwritten.
+     * @return The import statistics and the ids of the written films.
+     * @throws IOException if the input can't be read.
+     * @throws org.springframework.dao.DataIntegrityViolationException if the file isn't CSV of the expected columns.
+     */
+    public CopiedFilms copyCsv(InputStream csv, ImportMode mode) throws IOException {
+        jdbc.execute(CREATE_STAGING);
+        long rows;
+        try {
+            rows = jdbc.execute((ConnectionCallback<Long>) con -> {
+                try {
+                    return con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY, csv);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        jdbc.execute(RESOLVE.formatted(mode == ImportMode.OVERWRITE ? "desc" : "asc"));
+        int repeated = jdbc.update("delete from film_upload_valid where occurrence > 1");
+        jdbc.execute("analyze film_upload_valid");
+        int valid = jdbc.queryForObject("select count(*) from film_upload_valid", Integer.class);
+        jdbc.execute("create temp table film_upload_written (id bigint, title varchar, inserted boolean) on commit drop");
+        deferSearchVectors(true);
+        int written = jdbc.update(MERGE.formatted(FilmUpsertRepository.ID_BLOCK, mode == ImportMode.OVERWRITE ? DO_UPDATE : DO_NOTHING));
+        jdbc.execute("analyze film_upload_written");
+        int inserted = jdbc.queryForObject("select count(*) from film_upload_written where inserted", Integer.class);
+        if (written > inserted) {
+            jdbc.update("delete from film_genres where film_id in (select id from film_upload_written where not inserted)");
+            jdbc.update("delete from film_people where film_id in (select id from film_upload_written where not inserted)");
+        }
+        jdbc.update(INSERT_GENRES);
+        jdbc.update(INSERT_PEOPLE);
+        deferSearchVectors(false);
+        jdbc.update(UPDATE_SEARCH_VECTORS);
+
+        FilmsUploadResponse response = new FilmsUploadResponse();
+        response.setImported(inserted);
+        response.setFailed((int) rows - valid - repeated);
+        if (mode == ImportMode.SKIP) {
+            response.setSkipped(valid - written + repeated);
+        } else {
+            response.setUpdated(written - inserted + repeated);
+        }
+        return new CopiedFilms(response, jdbc.queryForList("select id from film_upload_written", Long.class));
+    }
+
+    private void deferSearchVectors(boolean defer) {
+        jdbc.queryForObject("select set_config('filmbase.defer_search_vector', ?, true)", String.class, defer ? "on" : "off");
+    }
+}
@@ -0,0 +1,90 @@
+package ua.holovchenko.filmbase.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ua.holovchenko.filmbase.controllers.dto.FilmFacetsResponse;
+import ua.holovchenko.filmbase.controllers.dto.RangeFacet;
+import ua.holovchenko.filmbase.repositories.criteria.FilmSqlFilter;
+
+/**
+ * Repository computing facet counts of filtered films.
+ * All facets come from one query: the filtered films are joined to their genres and directors
+ * once and counted per grouping set, so the cost doesn't grow with the number of buckets.
+ */
+@Repository
+public class FilmFacetRepository {
+    private static final int GENRE = 0b0111;
+    private static final int DIRECTOR = 0b1011;
+    private static final int YEAR = 0b1101;
+    private static final int RUNNING_TIME = 0b1110;
+    private static final String FACETS = """
+            with matched as (
+                select f.id, f.directed_by, f.year / %1$d * %1$d as year_from, f.running_time / %2$d * %2$d as running_time_from
+                from films f
+                where %3$s
+            )
+            select grouping(g.genre, d.name, m.year_from, m.running_time_from) as facet,
+                   g.genre, d.name, m.year_from, m.running_time_from, count(distinct m.id) as films
+            from matched m
+            left join film_genres g on g.film_id = m.id
+            left join directors d on d.id = m.directed_by
+            group by grouping sets ((g.genre), (d.name), (m.year_from), (m.running_time_from))
+            order by facet, films desc, g.genre, d.name, m.year_from, m.running_time_from
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final int yearRange;
+    private final int runningTimeRange;
+
+    /**
+     * Constructor for FilmFacetRepository.
+     * @param jdbc The JDBC template.
+     * @param yearRange The width of year buckets.
+     * @param runningTimeRange The width of running time buckets, in minutes.
+     */
+    @Autowired
+    public FilmFacetRepository(NamedParameterJdbcTemplate jdbc,
+                               @Value("${filmbase.facets.year-range:10}") int yearRange,
+                               @Value("${filmbase.facets.running-time-range:30}") int runningTimeRange) {
+        this.jdbc = jdbc;
+        this.yearRange = yearRange;
+        this.runningTimeRange = runningTimeRange;
+    }
+
+    /**
+     * Counts films matching the filter per genre, director, year range and running time range.
+     * Films without a value of an attribute are not counted in its facet.
+     * @param filter The filter of films.
+     * @return The facet counts.
+     */
+    public FilmFacetsResponse countFacets(FilmSqlFilter filter) {
+        FilmFacetsResponse response = new FilmFacetsResponse();
+        jdbc.query(FACETS.formatted(yearRange, runningTimeRange, filter.condition()), filter.params(), rs -> {
+            long films = rs.getLong("films");
+            switch (rs.getInt("facet")) {
+                case GENRE -> {
+                    String genre = rs.getString("genre");
+                    if (genre != null) response.getGenres().put(genre, films);
+                }
+                case DIRECTOR -> {
+                    String name = rs.getString("name");
+                    if (name != null) response.getDirectors().put(name, films);
+                }
+                case YEAR -> {
+                    Integer from = rs.getObject("year_from", Integer.class);
+                    if (from != null) response.getYears().add(new RangeFacet(from, from + yearRange - 1, films));
+                }
+                case RUNNING_TIME -> {
+                    Integer from = rs.getObject("running_time_from", Integer.class);
+                    if (from != null) response.getRunningTimes().add(new RangeFacet(from, from + runningTimeRange - 1, films));
+                }
+                default -> { }
+            }
+        });
+        response.getYears().sort((a, b) -> Integer.compare(a.getFrom(), b.getFrom()));
+        response.getRunningTimes().sort((a, b) -> Integer.compare(a.getFrom(), b.getFrom()));
+        return response;
+    }
+}
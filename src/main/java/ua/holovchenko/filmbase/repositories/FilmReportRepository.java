@@ -0,0 +1,71 @@
+package ua.holovchenko.filmbase.repositories;
+
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ua.holovchenko.filmbase.converters.DirectorCsvConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Repository writing CSV reports of filtered films with {@code COPY ... TO STDOUT}.
+ * Postgres formats the rows itself and PgJDBC hands them to the output stream as they arrive,
+ * so no entity is hydrated and nothing is buffered in the application.
+ * Columns are those opencsv writes for {@link ua.holovchenko.filmbase.controllers.dto.FilmListDto}:
+ * named in upper case in alphabetical order, every value quoted, the director as {@link DirectorCsvConverter} writes it.
+ */
+@Repository
+public class FilmReportRepository {
+    /**
+     * Header line of a CSV report.
+     */
+    public static final String CSV_HEADER = "\"DIRECTEDBY\",\"ID\",\"RUNNINGTIME\",\"TITLE\",\"YEAR\"\n";
+
+    private static final String COPY = """
+            copy (
+                select %s,
+                       f.id, coalesce(f.running_time::text, ''), f.title, coalesce(f.year::text, '')
+                from films f
+                left join directors d on d.id = f.directed_by
+                where %%s
+                order by f.id
+            ) to stdout with (format csv, force_quote *)
+            """.formatted(DirectorCsvConverter.sql("d"));
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Constructor for FilmReportRepository.
+     * @param jdbc The JDBC template.
+     */
+    @Autowired
+    public FilmReportRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Writes the rows of films matching the condition as CSV in id order, without the header line.
+     * {@code COPY} takes no bind parameters, so the condition is given with its values inlined.
+     * @param condition The SQL condition over {@code films f} without parameters.
+     * @param out The output stream the rows are written to.
+     * @return The number of rows written.
+     * @throws IOException if the output stream fails.
+     */
+    public long copyCsv(String condition, OutputStream out) throws IOException {
+        try {
+            return jdbc.execute((ConnectionCallback<Long>) con -> {
+                try {
+                    return con.unwrap(PGConnection.class).getCopyAPI().copyOut(COPY.formatted(condition), out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
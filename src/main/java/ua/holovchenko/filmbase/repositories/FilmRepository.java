@@ -1,13 +1,74 @@
 package ua.holovchenko.filmbase.repositories;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ua.holovchenko.filmbase.controllers.dto.FilmListDto;
 import ua.holovchenko.filmbase.entities.Film;
 
+import java.util.Optional;
+
 /**
  * Repository for Film entities.
  */
-public interface FilmRepository extends JpaRepository<Film, Long>, JpaSpecificationExecutor<Film> {
+public interface FilmRepository extends JpaRepository<Film, Long>, JpaSpecificationExecutor<Film>, FilmRepositoryCustom {
+
+    /**
+     * Page of list rows of films of a director, ordered by id.
+     */
+    @Query(value = "select new ua.holovchenko.filmbase.controllers.dto.FilmListDto(" +
+            "f.id, f.title, f.year, d.id, d.name, f.runningTime) " +
+            "from Film f join f.directedBy d where d.id = :directorId order by f.id",
+            countQuery = "select count(f) from Film f where f.directedBy.id = :directorId")
+    Page<FilmListDto> findListByDirector(@Param("directorId") long directorId, Pageable pageable);
+
+    /**
+     * Film with its director in one select, for writes that check the versions of both.
+     */
+    @Query("select f from Film f left join fetch f.directedBy where f.id = :id")
+    Optional<Film> findWithDirectorById(@Param("id") long id);
+
+    /**
+     * Versions of a film and of its director, which make the ETag of its model.
+     * The model embeds the director with all of its films, and every write of a film bumps
+     * the version of its director in the database, so the two versions cover the whole model.
+     */
+    @Query("select f.version as version, coalesce(d.version, 0L) as directorVersion " +
+            "from Film f left join f.directedBy d where f.id = :id")
+    Optional<FilmVersion> findVersionById(@Param("id") long id);
+
+    /**
+     * Projection of {@link #findVersionById}.
+     */
+    interface FilmVersion {
+        /**
+         * @return The version of the film.
+         */
+        long getVersion();
+
+        /**
+         * @return The version of the film's director.
+         */
+        long getDirectorVersion();
+
+        /**
+         * @return The quoted strong ETag of the film's model.
+         */
+        default String getEtag() {
+            return etag(getVersion(), getDirectorVersion());
+        }
 
-    boolean existsByTitle(String title);
-}
\ No newline at end of file
+        /**
+         * Quoted strong ETag of a film's model.
+         * @param version The version of the film.
+         * @param directorVersion The version of the film's director.
+         * @return The ETag.
+         */
+        static String etag(long version, long directorVersion) {
+            return "\"" + version + "." + directorVersion + "\"";
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ua.holovchenko.filmbase.repositories;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import ua.holovchenko.filmbase.controllers.dto.FilmListDto;
+import ua.holovchenko.filmbase.entities.Film;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Custom repository fragment for Film queries that Spring Data derivation can't express.
+ * List queries project films straight into {@link FilmListDto}s with one join to directors,
+ * so no entities are loaded and a page costs a single select.
+ */
+public interface FilmRepositoryCustom {
+
+    /**
+     * Streams list rows of films matching the specification in id order through a forward-only database cursor.
+     * Must be consumed inside a transaction, and the stream must be closed after use.
+     * @param specification The specification to filter films by.
+     * @param fetchSize The number of rows the JDBC driver fetches per round trip.
+     * @return The stream of matching films.
+     */
+    Stream<FilmListDto> streamList(Specification<Film> specification, int fetchSize);
+
+    /**
+     * Finds a slice of list rows of films matching the specification, without counting all matches.
+     * @param specification The specification to filter films by.
+     * @param sort The order of films.
+     * @param offset The number of films to skip.
+     * @param limit The maximum number of films to return.
+     * @return The list of films.
+     */
+    List<FilmListDto> findListSlice(Specification<Film> specification, Sort sort, int offset, int limit);
+
+    /**
+     * Full-text search over titles, people and genres, most relevant films first.
+     * Web search syntax is supported in the query: quoted phrases, "or" and "-" for exclusion.
+     * @param query The search query.
+     * @param pageable The requested page.
+     * @return The page of list rows of matching films.
+     */
+    Page<FilmListDto> search(String query, Pageable pageable);
+}
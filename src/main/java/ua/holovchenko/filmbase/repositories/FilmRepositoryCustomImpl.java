@@ -0,0 +1,92 @@
+package ua.holovchenko.filmbase.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import ua.holovchenko.filmbase.controllers.dto.FilmListDto;
+import ua.holovchenko.filmbase.entities.Film;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link FilmRepositoryCustom} based on the JPA Criteria API.
+ */
+public class FilmRepositoryCustomImpl implements FilmRepositoryCustom {
+    private static final String SEARCH = "select f.id, f.title, f.year, f.directed_by, d.name, f.running_time " +
+            "from films f left join directors d on d.id = f.directed_by, websearch_to_tsquery('simple', :query) q " +
+            "where f.search_vector @@ q order by ts_rank(f.search_vector, q) desc, f.id";
+    private static final String SEARCH_COUNT =
+            "select count(*) from films f where f.search_vector @@ websearch_to_tsquery('simple', :query)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<FilmListDto> streamList(Specification<Film> specification, int fetchSize) {
+        return entityManager.createQuery(listQuery(specification, Sort.by("id")))
+                .setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    @Override
+    public List<FilmListDto> findListSlice(Specification<Film> specification, Sort sort, int offset, int limit) {
+        return entityManager.createQuery(listQuery(specification, sort))
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Page<FilmListDto> search(String query, Pageable pageable) {
+        List<?> rows = entityManager.createNativeQuery(SEARCH, Tuple.class)
+                .setParameter("query", query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        List<FilmListDto> films = rows.stream()
+                .map(Tuple.class::cast)
+                .map(row -> new FilmListDto(
+                        row.get(0, Long.class),
+                        row.get(1, String.class),
+                        row.get(2, Integer.class),
+                        row.get(3, Long.class),
+                        row.get(4, String.class),
+                        row.get(5, Integer.class)))
+                .toList();
+        long total = ((Number) entityManager.createNativeQuery(SEARCH_COUNT)
+                .setParameter("query", query)
+                .getSingleResult()).longValue();
+        return new PageImpl<>(films, pageable, total);
+    }
+
+    private CriteriaQuery<FilmListDto> listQuery(Specification<Film> specification, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<FilmListDto> query = criteriaBuilder.createQuery(FilmListDto.class);
+        Root<Film> root = query.from(Film.class);
+        Join<Film, ?> director = root.join("directedBy", JoinType.LEFT);
+        query.select(criteriaBuilder.construct(FilmListDto.class,
+                root.get("id"),
+                root.get("title"),
+                root.get("year"),
+                director.get("id"),
+                director.get("name"),
+                root.get("runningTime")));
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        }
+        return query;
+    }
+}
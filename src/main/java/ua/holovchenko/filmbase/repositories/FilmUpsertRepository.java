@@ -0,0 +1,170 @@
+package ua.holovchenko.filmbase.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ua.holovchenko.filmbase.controllers.dto.ImportMode;
+import ua.holovchenko.filmbase.entities.Film;
+import ua.holovchenko.filmbase.entities.FilmPerson;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository writing batches of films with single-statement upserts.
+ * Films are sent as arrays and inserted with {@code INSERT ... ON CONFLICT (title)},
+ * so a title written concurrently by another upload is skipped or overwritten instead of failing the batch,
+ * and the returned rows tell inserted films from updated ones without reading them first.
+ * Writes bypass the persistence context: callers evict the written films from the second level cache.
+ */
+@Repository
+public class FilmUpsertRepository {
+    /**
+     * Increment of {@code films_seq}, the size of the id blocks used by {@link Film}'s pooled generator.
+     */
+    static final int ID_BLOCK = 50;
+    private static final String UPSERT = """
+            insert into films (id, title, year, directed_by, running_time)
+            select * from unnest(?::bigint[], ?::varchar[], ?::int[], ?::bigint[], ?::int[])
+            on conflict (title) %s
+            returning id, title, (xmax = 0) as inserted
+            """;
+    private static final String DO_NOTHING = "do nothing";
+    private static final String DO_UPDATE = """
+            do update set year = excluded.year, directed_by = excluded.directed_by, running_time = excluded.running_time,
+                          version = films.version + 1
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * A film written by an upsert.
+     * @param id The id of the film.
+     * @param title The title of the film.
+     * @param inserted True if the film was inserted, false if an existing one was updated.
+     */
+    public record UpsertedFilm(long id, String title, boolean inserted) {
+    }
+
+    /**
+     * Constructor for FilmUpsertRepository.
+     * @param jdbc The JDBC template.
+     */
+    @Autowired
+    public FilmUpsertRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Inserts films, skipping or overwriting the ones whose title exists, with their genres and people.
+     * Titles must be unique within the batch; the films' directors must have ids.
+     * Overwritten films keep their id and get the uploaded genres and people instead of their own.
+     * @param films The films to write.
+     * @param mode Whether films with existing titles are skipped or overwritten.
+     * @return The written films; skipped ones are absent.
+     */
+    public List<UpsertedFilm> upsert(List<Film> films, ImportMode mode) {
+        if (films.isEmpty()) {
+            return List.of();
+        }
+        Long[] ids = allocateIds(films.size());
+        Object[] titles = new Object[films.size()];
+        Object[] years = new Object[films.size()];
+        Object[] directors = new Object[films.size()];
+        Object[] runningTimes = new Object[films.size()];
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            titles[i] = film.getTitle();
+            years[i] = film.getYear();
+            directors[i] = film.getDirectedBy().getId();
+            runningTimes[i] = film.getRunningTime();
+        }
+        String sql = UPSERT.formatted(mode == ImportMode.OVERWRITE ? DO_UPDATE : DO_NOTHING);
+        List<UpsertedFilm> written = jdbc.query(con -> {
+            PreparedStatement statement = con.prepareStatement(sql);
+            statement.setArray(1, con.createArrayOf("bigint", ids));
+            statement.setArray(2, con.createArrayOf("varchar", titles));
+            statement.setArray(3, con.createArrayOf("int4", years));
+            statement.setArray(4, con.createArrayOf("bigint", directors));
+            statement.setArray(5, con.createArrayOf("int4", runningTimes));
+            return statement;
+        }, (rs, rowNum) -> new UpsertedFilm(rs.getLong("id"), rs.getString("title"), rs.getBoolean("inserted")));
+        Long[] updated = written.stream().filter(film -> !film.inserted()).map(UpsertedFilm::id).toArray(Long[]::new);
+        if (updated.length > 0) {
+            execute("delete from film_genres where film_id = any(?)", con -> new Object[]{con.createArrayOf("bigint", updated)});
+            execute("delete from film_people where film_id = any(?)", con -> new Object[]{con.createArrayOf("bigint", updated)});
+        }
+        insertChildren(films, written);
+        return written;
+    }
+
+    private void insertChildren(List<Film> films, List<UpsertedFilm> written) {
+        Map<String, Long> writtenIds = new HashMap<>(written.size() * 2);
+        written.forEach(film -> writtenIds.put(film.title(), film.id()));
+        List<Object> genreFilms = new ArrayList<>();
+        List<Object> genres = new ArrayList<>();
+        List<Object> personFilms = new ArrayList<>();
+        List<Object> roles = new ArrayList<>();
+        List<Object> names = new ArrayList<>();
+        for (Film film : films) {
+            Long id = writtenIds.get(film.getTitle());
+            if (id == null) {
+                continue;
+            }
+            for (String genre : film.getGenres()) {
+                genreFilms.add(id);
+                genres.add(genre);
+            }
+            for (FilmPerson person : film.getPeople()) {
+                personFilms.add(id);
+                roles.add(person.getRole().name());
+                names.add(person.getName());
+            }
+        }
+        if (!genres.isEmpty()) {
+            execute("insert into film_genres (film_id, genre) select * from unnest(?::bigint[], ?::varchar[])",
+                    con -> new Object[]{con.createArrayOf("bigint", genreFilms.toArray()), con.createArrayOf("varchar", genres.toArray())});
+        }
+        if (!names.isEmpty()) {
+            execute("insert into film_people (film_id, role, name) select * from unnest(?::bigint[], ?::varchar[], ?::varchar[])",
+                    con -> new Object[]{con.createArrayOf("bigint", personFilms.toArray()),
+                            con.createArrayOf("varchar", roles.toArray()), con.createArrayOf("varchar", names.toArray())});
+        }
+    }
+
+    /**
+     * Takes ids for the films from {@code films_seq} a block at a time, the way Hibernate's pooled generator does:
+     * a sequence value v reserves the ids from v - 49 to v, so they never collide with ids given out by JPA.
+     * Ids of skipped films are left unused.
+     */
+    private Long[] allocateIds(int count) {
+        List<Long> blocks = jdbc.queryForList("select nextval('films_seq') from generate_series(1, ?)", Long.class,
+                (count + ID_BLOCK - 1) / ID_BLOCK);
+        Long[] ids = new Long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = blocks.get(i / ID_BLOCK) - ID_BLOCK + 1 + i % ID_BLOCK;
+        }
+        return ids;
+    }
+
+    private void execute(String sql, ArrayParams params) {
+        jdbc.update(con -> {
+            PreparedStatement statement = con.prepareStatement(sql);
+            Object[] arrays = params.create(con);
+            for (int i = 0; i < arrays.length; i++) {
+                statement.setObject(i + 1, arrays[i]);
+            }
+            return statement;
+        });
+    }
+
+    @FunctionalInterface
+    private interface ArrayParams {
+        Object[] create(Connection con) throws SQLException;
+    }
+}
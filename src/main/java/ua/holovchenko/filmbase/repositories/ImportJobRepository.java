@@ -0,0 +1,207 @@
+package ua.holovchenko.filmbase.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ua.holovchenko.filmbase.controllers.dto.FilmsUploadResponse;
+import ua.holovchenko.filmbase.controllers.dto.ImportJobResponse;
+import ua.holovchenko.filmbase.controllers.dto.ImportJobStatus;
+import ua.holovchenko.filmbase.controllers.dto.ImportMode;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+/**
+ * Repository of upload import jobs queued in Postgres.
+ * A job is split into chunks of films; workers of any application instance claim chunks one by one
+ * with {@code FOR UPDATE SKIP LOCKED}, so concurrent workers never wait for or claim the same chunk.
+ * Chunks of one partition are claimed in order, each once the previous ones are done.
+ * A claim is a lease: a chunk that isn't completed within it can be claimed again.
+ */
+@Repository
+public class ImportJobRepository {
+    private static final String CLAIM = """
+            update import_job_chunks c
+            set status = 'RUNNING', claimed_by = :worker, claimed_at = now(), attempts = c.attempts + 1
+            from (
+                select n.job_id, n.chunk_no
+                from import_job_chunks n
+                where (n.status = 'PENDING'
+                       or (n.status = 'RUNNING' and n.claimed_at < now() - make_interval(secs => :leaseSeconds)))
+                  and not exists (
+                      select 1
+                      from import_job_chunks p
+                      where p.job_id = n.job_id and p.partition_no = n.partition_no
+                        and p.chunk_no < n.chunk_no and p.status <> 'DONE'
+                  )
+                order by n.job_id, n.chunk_no
+                limit 1
+                for update of n skip locked
+            ) next
+            where c.job_id = next.job_id and c.chunk_no = next.chunk_no
+            returning c.job_id, c.chunk_no, c.payload, c.films, c.attempts,
+                      (select j.mode from import_jobs j where j.id = c.job_id) as mode
+            """;
+    private static final String COMPLETE = """
+            update import_job_chunks
+            set status = 'DONE', imported = :imported, failed = :failed, skipped = :skipped, updated = :updated,
+                payload = null
+            where job_id = :jobId and chunk_no = :chunkNo and status = 'RUNNING' and claimed_by = :worker
+            """;
+    private static final String FINISH_JOB = """
+            update import_jobs j
+            set finished_at = now()
+            where j.id = :jobId and j.finished_at is null
+              and not exists (select 1 from import_job_chunks c where c.job_id = j.id and c.status <> 'DONE')
+            """;
+    private static final String STATUS = """
+            select j.id, j.mode, j.films, j.chunks, j.created_at, j.finished_at,
+                   count(c.chunk_no) filter (where c.status = 'DONE') as processed_chunks,
+                   count(c.chunk_no) filter (where c.status <> 'PENDING') as started_chunks,
+                   coalesce(sum(c.imported), 0) as imported,
+                   coalesce(sum(c.failed), 0) as failed,
+                   coalesce(sum(c.skipped), 0) as skipped,
+                   coalesce(sum(c.updated), 0) as updated
+            from import_jobs j
+            left join import_job_chunks c on c.job_id = j.id
+            where j.id = :jobId
+            group by j.id
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * A chunk claimed by a worker.
+     * @param jobId The id of the job.
+     * @param chunkNo The number of the chunk in the job.
+     * @param payload The JSON array of the films of the chunk.
+     * @param films The number of films in the chunk.
+     * @param attempts The number of claims of the chunk, including this one.
+     * @param mode Whether the job skips or overwrites films with existing titles.
+     */
+    public record ClaimedChunk(long jobId, int chunkNo, String payload, int films, int attempts, ImportMode mode) {
+    }
+
+    /**
+     * Constructor for ImportJobRepository.
+     * @param jdbc The JDBC template.
+     */
+    @Autowired
+    public ImportJobRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Creates an empty job.
+     * @param mode Whether the job skips or overwrites films with existing titles.
+     * @return The id of the job.
+     */
+    public long createJob(ImportMode mode) {
+        return jdbc.queryForObject("insert into import_jobs (mode) values (:mode) returning id",
+                new MapSqlParameterSource("mode", mode.name()), Long.class);
+    }
+
+    /**
+     * Adds a chunk of films to a job.
+     * @param jobId The id of the job.
+     * @param chunkNo The number of the chunk in the job.
+     * @param partition The partition of the films of the chunk.
+     * @param payload The JSON array of the films of the chunk.
+     * @param films The number of films in the chunk.
+     */
+    public void addChunk(long jobId, int chunkNo, int partition, String payload, int films) {
+        jdbc.update("insert into import_job_chunks (job_id, chunk_no, partition_no, payload, films) "
+                        + "values (:jobId, :chunkNo, :partition, :payload, :films)",
+                new MapSqlParameterSource("jobId", jobId)
+                        .addValue("chunkNo", chunkNo)
+                        .addValue("partition", partition)
+                        .addValue("payload", payload)
+                        .addValue("films", films));
+    }
+
+    /**
+     * Records the totals of a job once all its chunks are added.
+     * A job without chunks is finished right away.
+     * @param jobId The id of the job.
+     * @param chunks The number of chunks.
+     * @param films The number of films.
+     */
+    public void completeStaging(long jobId, int chunks, int films) {
+        jdbc.update("update import_jobs set chunks = :chunks, films = :films, finished_at = case when :chunks = 0 then now() end where id = :jobId",
+                new MapSqlParameterSource("jobId", jobId)
+                        .addValue("chunks", chunks)
+                        .addValue("films", films));
+    }
+
+    /**
+     * Claims the oldest chunk that is pending or whose lease has expired.
+     * @param worker The id of the claiming worker.
+     * @param lease The time after which an uncompleted claim expires.
+     * @return The claimed chunk, or empty if there is nothing to import.
+     */
+    public Optional<ClaimedChunk> claimChunk(String worker, Duration lease) {
+        return jdbc.query(CLAIM, new MapSqlParameterSource("worker", worker).addValue("leaseSeconds", lease.toSeconds()),
+                (rs, rowNum) -> new ClaimedChunk(rs.getLong("job_id"), rs.getInt("chunk_no"), rs.getString("payload"),
+                        rs.getInt("films"), rs.getInt("attempts"), ImportMode.valueOf(rs.getString("mode")))
+        ).stream().findFirst();
+    }
+
+    /**
+     * Completes a chunk claimed by the worker and finishes its job if it was the last one.
+     * Nothing is recorded if the lease was lost to another worker meanwhile.
+     * @param chunk The claimed chunk.
+     * @param worker The id of the worker.
+     * @param result The import statistics of the chunk.
+     * @return True if the chunk was completed by this call.
+     */
+    public boolean completeChunk(ClaimedChunk chunk, String worker, FilmsUploadResponse result) {
+        MapSqlParameterSource params = new MapSqlParameterSource("jobId", chunk.jobId())
+                .addValue("chunkNo", chunk.chunkNo())
+                .addValue("worker", worker)
+                .addValue("imported", result.getImported())
+                .addValue("failed", result.getFailed())
+                .addValue("skipped", result.getSkipped())
+                .addValue("updated", result.getUpdated());
+        if (jdbc.update(COMPLETE, params) == 0) {
+            return false;
+        }
+        jdbc.update(FINISH_JOB, params);
+        return true;
+    }
+
+    /**
+     * Returns a chunk claimed by the worker to the queue, so it can be claimed again right away.
+     * @param chunk The claimed chunk.
+     * @param worker The id of the worker.
+     */
+    public void releaseChunk(ClaimedChunk chunk, String worker) {
+        jdbc.update("update import_job_chunks set status = 'PENDING', claimed_by = null, claimed_at = null "
+                        + "where job_id = :jobId and chunk_no = :chunkNo and status = 'RUNNING' and claimed_by = :worker",
+                new MapSqlParameterSource("jobId", chunk.jobId())
+                        .addValue("chunkNo", chunk.chunkNo())
+                        .addValue("worker", worker));
+    }
+
+    /**
+     * Retrieves a job with its progress and the statistics of its imported chunks.
+     * @param jobId The id of the job.
+     * @return The job, or empty if it doesn't exist.
+     */
+    public Optional<ImportJobResponse> findJob(long jobId) {
+        return jdbc.query(STATUS, new MapSqlParameterSource("jobId", jobId), (rs, rowNum) -> {
+            FilmsUploadResponse result = new FilmsUploadResponse();
+            result.setImported(rs.getInt("imported"));
+            result.setFailed(rs.getInt("failed"));
+            result.setSkipped(rs.getInt("skipped"));
+            result.setUpdated(rs.getInt("updated"));
+            OffsetDateTime finishedAt = rs.getObject("finished_at", OffsetDateTime.class);
+            ImportJobStatus status = finishedAt != null ? ImportJobStatus.DONE
+                    : rs.getInt("started_chunks") > 0 ? ImportJobStatus.RUNNING
+                    : ImportJobStatus.PENDING;
+            return new ImportJobResponse(rs.getLong("id"), status, ImportMode.valueOf(rs.getString("mode")), rs.getInt("films"), rs.getInt("chunks"),
+                    rs.getInt("processed_chunks"), result, rs.getObject("created_at", OffsetDateTime.class), finishedAt);
+        }).stream().findFirst();
+    }
+}
@@ -0,0 +1,70 @@
+package ua.holovchenko.filmbase.repositories.criteria;
+
+import ua.holovchenko.filmbase.controllers.dto.FilmListDto;
+import ua.holovchenko.filmbase.controllers.dto.FilmSortKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last film of a page in a keyset-paginated list.
+ * Encoded for clients as an opaque URL-safe string.
+ * @param sortKey The sort key the list is ordered by.
+ * @param value The sort key value of the last film, or null if the film has none.
+ * @param id The id of the last film.
+ */
+public record FilmCursor(FilmSortKey sortKey, Object value, long id) {
+    private static final String SEPARATOR = "\n";
+    private static final String VALUE_PREFIX = "v";
+
+    /**
+     * Creates a cursor pointing at the given film.
+     * @param sortKey The sort key the list is ordered by.
+     * @param film The last film of the page.
+     * @return The cursor.
+     */
+    public static FilmCursor of(FilmSortKey sortKey, FilmListDto film) {
+        return new FilmCursor(sortKey, switch (sortKey) {
+            case ID -> film.getId();
+            case TITLE -> film.getTitle();
+            case YEAR -> film.getYear();
+            case RUNNING_TIME -> film.getRunningTime();
+        }, film.getId());
+    }
+
+    /**
+     * Decodes a cursor sent by a client.
+     * @param encoded The encoded cursor.
+     * @param sortKey The sort key of the requested list.
+     * @return The decoded cursor.
+     * @throws IllegalArgumentException if the cursor is malformed or belongs to a list with another sort key.
+     */
+    public static FilmCursor decode(String encoded, FilmSortKey sortKey) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8)
+                .split(SEPARATOR, 3);
+        if (parts.length != 3 || !parts[0].equals(sortKey.name())) {
+            throw new IllegalArgumentException("Cursor doesn't match sort key " + sortKey);
+        }
+        long id = Long.parseLong(parts[1]);
+        if (parts[2].isEmpty()) {
+            return new FilmCursor(sortKey, null, id);
+        }
+        if (!parts[2].startsWith(VALUE_PREFIX)) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        String value = parts[2].substring(VALUE_PREFIX.length());
+        return new FilmCursor(sortKey, switch (sortKey) {
+            case ID -> Long.parseLong(value);
+            case TITLE -> value;
+            case YEAR, RUNNING_TIME -> Integer.parseInt(value);
+        }, id);
+    }
+
+    /**
+     * @return The cursor encoded for clients.
+     */
+    public String encode() {
+        String raw = sortKey.name() + SEPARATOR + id + SEPARATOR + (value == null ? "" : VALUE_PREFIX + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
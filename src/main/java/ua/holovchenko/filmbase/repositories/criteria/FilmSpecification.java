@@ -1,10 +1,16 @@
 package ua.holovchenko.filmbase.repositories.criteria;
 
-import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.*;
+import org.hibernate.query.sqm.NodeBuilder;
+import org.hibernate.query.sqm.tree.expression.SqmExpression;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
+import ua.holovchenko.filmbase.controllers.dto.FilmSortKey;
 import ua.holovchenko.filmbase.controllers.dto.Filters;
 import ua.holovchenko.filmbase.entities.Film;
+import ua.holovchenko.filmbase.entities.FilmPerson;
+import ua.holovchenko.filmbase.entities.PersonRole;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -21,23 +27,23 @@ public class FilmSpecification {
             List<Predicate> predicates = new ArrayList<>();
             if (filters.getWrittenBy() != null) {
                 filters.getWrittenBy().forEach(s -> predicates.add(
-                        criteriaBuilder.like(root.get("writtenBy"), "%" + s + "%")));
+                        hasPerson(root, query, criteriaBuilder, PersonRole.WRITER, s)));
             }
             if (filters.getProducedBy() != null) {
                 filters.getProducedBy().forEach(s -> predicates.add(
-                        criteriaBuilder.like(root.get("producedBy"), "%" + s + "%")));
+                        hasPerson(root, query, criteriaBuilder, PersonRole.PRODUCER, s)));
             }
             if (filters.getStarring() != null) {
                 filters.getStarring().forEach(s -> predicates.add(
-                        criteriaBuilder.like(root.get("starring"), "%" + s + "%")));
+                        hasPerson(root, query, criteriaBuilder, PersonRole.STAR, s)));
             }
             if (filters.getGenres() != null) {
                 filters.getGenres().forEach(s -> predicates.add(
-                        criteriaBuilder.like(root.get("genres"), "%" + s + "%")));
+                        hasGenre(root, query, criteriaBuilder, s)));
             }
             if (filters.getDirectedBy() != null) {
                 predicates.add(
-                        criteriaBuilder.equal(root.get("directedBy"), filters.getDirectedBy())
+                        criteriaBuilder.equal(root.get("directedBy").get("name"), filters.getDirectedBy())
                 );
             }
             if (filters.getRunningTime() != null) {
@@ -73,5 +79,83 @@ public class FilmSpecification {
             return criteriaBuilder.and(predicates.toArray(new Predicate[predicates.size()]));
         });
     }
-}
 
+    /**
+     * Exact membership of a person in the film's people, resolved by the (role, name, film_id) index of film_people.
+     */
+    private static Predicate hasPerson(Root<Film> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder,
+                                       PersonRole role, String name) {
+        Subquery<Long> subquery = query.subquery(Long.class);
+        Root<Film> film = subquery.correlate(root);
+        Join<Film, FilmPerson> person = film.join("people");
+        return criteriaBuilder.exists(subquery.select(film.get("id")).where(
+                criteriaBuilder.equal(person.get("role"), role),
+                criteriaBuilder.equal(person.get("name"), name)
+        ));
+    }
+
+    /**
+     * Exact membership of a genre in the film's genres, resolved by the (genre, film_id) index of film_genres.
+     */
+    private static Predicate hasGenre(Root<Film> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder,
+                                      String genre) {
+        Subquery<Long> subquery = query.subquery(Long.class);
+        Root<Film> film = subquery.correlate(root);
+        Join<Film, String> genres = film.join("genres");
+        return criteriaBuilder.exists(subquery.select(film.get("id")).where(
+                criteriaBuilder.equal(genres, genre)
+        ));
+    }
+
+    /**
+     * Keyset predicate selecting films that come after the cursor in the order of {@link #sort(FilmSortKey)}
+     * and have the same nullness of the sort key, so that it is a single range of the (key, id) index.
+     * With a sort key value it is the row comparison {@code (key, id) > (value, id)}; the films without a key,
+     * which are sorted last as PostgreSQL does for ascending order, follow them and are selected by {@link #noKey}.
+     * @param cursor The position of the last film of the previous page.
+     * @return The specification.
+     */
+    public Specification<Film> after(FilmCursor cursor) {
+        return ((root, query, criteriaBuilder) -> {
+            Path<Long> id = root.get("id");
+            if (cursor.sortKey() == FilmSortKey.ID) {
+                return criteriaBuilder.greaterThan(id, cursor.id());
+            }
+            Path<Object> key = root.get(cursor.sortKey().getAttribute());
+            if (cursor.value() == null) {
+                return criteriaBuilder.and(criteriaBuilder.isNull(key), criteriaBuilder.greaterThan(id, cursor.id()));
+            }
+            return rowAfter((NodeBuilder) criteriaBuilder, key, id, cursor.value(), cursor.id());
+        });
+    }
+
+    /**
+     * Predicate selecting films without a value of the sort key, which come last in its order.
+     * @param sortKey The nullable sort key.
+     * @return The specification.
+     */
+    public Specification<Film> noKey(FilmSortKey sortKey) {
+        return ((root, query, criteriaBuilder) -> criteriaBuilder.isNull(root.get(sortKey.getAttribute())));
+    }
+
+    /**
+     * Row comparison of (key, id) with the cursor, which the criteria API can express only through Hibernate's tuples.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate rowAfter(NodeBuilder nodes, Path<Object> key, Path<Long> id, Object value, long lastId) {
+        Expression row = nodes.tuple(Object[].class, (SqmExpression<?>) key, (SqmExpression<?>) id);
+        Expression cursor = nodes.tuple(Object[].class, (SqmExpression<?>) nodes.value(value), (SqmExpression<?>) nodes.value(lastId));
+        return nodes.greaterThan(row, cursor);
+    }
+
+    /**
+     * Total order of a film list by the sort key, with ties broken by id.
+     * @param sortKey The sort key.
+     * @return The sort.
+     */
+    public Sort sort(FilmSortKey sortKey) {
+        return sortKey == FilmSortKey.ID
+                ? Sort.by("id")
+                : Sort.by(sortKey.getAttribute(), "id");
+    }
+}
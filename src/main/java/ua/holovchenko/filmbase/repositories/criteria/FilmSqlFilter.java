@@ -0,0 +1,95 @@
+package ua.holovchenko.filmbase.repositories.criteria;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import ua.holovchenko.filmbase.controllers.dto.Filters;
+import ua.holovchenko.filmbase.entities.PersonRole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Native SQL counterpart of {@link FilmSpecification}: the same Filters as a parameterized
+ * WHERE condition over {@code films f}, for queries the Criteria API can't express.
+ * @param condition The SQL condition, never empty.
+ * @param params The named parameters of the condition.
+ */
+public record FilmSqlFilter(String condition, MapSqlParameterSource params) {
+    private static final Pattern PARAM = Pattern.compile(":(\\w+)");
+
+    /**
+     * Builds the condition for the filters.
+     * @param filters The filters.
+     * @return The condition with its parameters.
+     */
+    public static FilmSqlFilter of(Filters filters) {
+        List<String> conditions = new ArrayList<>();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        addPeople(conditions, params, PersonRole.WRITER, filters.getWrittenBy());
+        addPeople(conditions, params, PersonRole.PRODUCER, filters.getProducedBy());
+        addPeople(conditions, params, PersonRole.STAR, filters.getStarring());
+        if (filters.getGenres() != null) {
+            for (String genre : filters.getGenres()) {
+                String param = "genre" + params.getParameterNames().length;
+                conditions.add("exists (select 1 from film_genres g where g.film_id = f.id and g.genre = :" + param + ")");
+                params.addValue(param, genre);
+            }
+        }
+        if (filters.getDirectedBy() != null) {
+            conditions.add("f.directed_by = (select d.id from directors d where d.name = :directedBy)");
+            params.addValue("directedBy", filters.getDirectedBy());
+        }
+        add(conditions, params, "f.running_time = :runningTime", "runningTime", filters.getRunningTime());
+        add(conditions, params, "f.running_time >= :runningTimeMin", "runningTimeMin", filters.getRunningTimeMin());
+        add(conditions, params, "f.running_time <= :runningTimeMax", "runningTimeMax", filters.getRunningTimeMax());
+        add(conditions, params, "f.year = :year", "year", filters.getYear());
+        add(conditions, params, "f.year >= :yearSince", "yearSince", filters.getYearSince());
+        add(conditions, params, "f.year <= :yearTo", "yearTo", filters.getYearTo());
+        return new FilmSqlFilter(conditions.isEmpty() ? "true" : String.join(" and ", conditions), params);
+    }
+
+    /**
+     * Renders the condition with its parameters inlined as SQL literals, for statements that take
+     * no bind parameters, such as {@code COPY}. Strings are written as escape string constants,
+     * so they are quoted the same way whatever {@code standard_conforming_strings} is.
+     * @return The condition without parameters.
+     */
+    public String inlined() {
+        Matcher param = PARAM.matcher(condition);
+        return param.replaceAll(match -> Matcher.quoteReplacement(literal(params.getValue(match.group(1)))));
+    }
+
+    private static String literal(Object value) {
+        if (value instanceof Integer number) {
+            return number.toString();
+        }
+        String string = (String) value;
+        if (string.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("Filter value contains a NUL character");
+        }
+        return "E'" + string.replace("\\", "\\\\").replace("'", "''") + "'";
+    }
+
+    private static void addPeople(List<String> conditions, MapSqlParameterSource params,
+                                  PersonRole role, Set<String> names) {
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            String param = "person" + params.getParameterNames().length;
+            conditions.add("exists (select 1 from film_people p where p.film_id = f.id and p.role = '"
+                    + role.name() + "' and p.name = :" + param + ")");
+            params.addValue(param, name);
+        }
+    }
+
+    private static void add(List<String> conditions, MapSqlParameterSource params,
+                            String condition, String param, Integer value) {
+        if (value != null) {
+            conditions.add(condition);
+            params.addValue(param, value);
+        }
+    }
+}
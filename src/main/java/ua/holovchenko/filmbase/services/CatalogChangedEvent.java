@@ -0,0 +1,29 @@
+package ua.holovchenko.filmbase.services;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Application event published after films or directors were written through the service layer.
+ * Listeners use it to keep read-side structures (caches, in-memory catalog) in step with the database.
+ * @param filmIds The ids of created, updated or deleted films.
+ * @param directorIds The ids of created, updated or deleted directors.
+ */
+public record CatalogChangedEvent(Set<Long> filmIds, Set<Long> directorIds) {
+
+    /**
+     * @param filmIds The ids of changed films.
+     * @return The event about changed films.
+     */
+    public static CatalogChangedEvent films(Collection<Long> filmIds) {
+        return new CatalogChangedEvent(Set.copyOf(filmIds), Set.of());
+    }
+
+    /**
+     * @param directorId The id of the changed director.
+     * @return The event about a changed director.
+     */
+    public static CatalogChangedEvent director(long directorId) {
+        return new CatalogChangedEvent(Set.of(), Set.of(directorId));
+    }
+}
@@ -0,0 +1,97 @@
+package ua.holovchenko.filmbase.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the catalog, bumped by every write of films or directors.
+ * The version is a row of the database, bumped in the transaction of the write, so every instance sees it change
+ * exactly when the write becomes visible, and it survives restarts.
+ * Caches of read results key their entries by it, so a write makes all older entries unreachable.
+ * Read-side structures of this instance are updated after the commit; the number of changes they have applied
+ * is counted separately for caches of results they serve.
+ * Bumps made by this instance are counted too, so that a read-side structure can tell writes of other instances,
+ * which it gets no events about, by the version moving further than them.
+ */
+@Component
+public class CatalogVersion {
+    /**
+     * Order of the applied changes count among listeners of {@link CatalogChangedEvent}.
+     * Read-side structures answering queries must be updated before it, with a lower order.
+     */
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE;
+
+    private final JdbcTemplate jdbc;
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong bumped = new AtomicLong();
+
+    /**
+     * Constructor for CatalogVersion.
+     * @param jdbc The JDBC template.
+     */
+    @Autowired
+    public CatalogVersion(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * @return The current version of the catalog, as committed in the database.
+     */
+    public long current() {
+        return jdbc.queryForObject("select version from catalog_version where id = 1", Long.class);
+    }
+
+    /**
+     * Bumps the version in the current transaction.
+     * Should be the last statement of the write, as it locks the version row until the commit.
+     * The bump is counted before the commit and uncounted if the transaction doesn't commit.
+     */
+    public void bump() {
+        jdbc.update("update catalog_version set version = version + 1 where id = 1");
+        bumped.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        bumped.decrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the number of bumps made by this instance.
+     * A bump is counted before its commit, so one read after {@link #current()} covers every local write it includes.
+     * @return The number of bumps made by this instance and not rolled back.
+     */
+    public long bumped() {
+        return bumped.get();
+    }
+
+    /**
+     * @return The number of changes applied to read-side structures of this instance.
+     */
+    public long applied() {
+        return applied.get();
+    }
+
+    /**
+     * Counts a change once it is committed and applied to read-side structures.
+     * @param event The event describing the change.
+     */
+    @Order(ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        applied.incrementAndGet();
+    }
+}
@@ -1,14 +1,24 @@
 package ua.holovchenko.filmbase.services;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.validation.ValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.holovchenko.filmbase.controllers.dto.DirectorListDto;
+import ua.holovchenko.filmbase.controllers.dto.DirectorListResponse;
+import ua.holovchenko.filmbase.controllers.dto.FilmListDto;
+import ua.holovchenko.filmbase.controllers.dto.FilmListResponse;
 import ua.holovchenko.filmbase.entities.Director;
 import ua.holovchenko.filmbase.models.DirectorModel;
 import ua.holovchenko.filmbase.repositories.DirectorRepository;
+import ua.holovchenko.filmbase.repositories.FilmRepository;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.NoSuchElementException;
 
 import static ua.holovchenko.filmbase.converters.DirectorModelEntityConverter.directorEntityToModel;
@@ -16,30 +26,69 @@ import static ua.holovchenko.filmbase.converters.DirectorModelEntityConverter.di
 
 /**
  * Service class for Director entities.
+ * Every public method is timed with a percentile histogram.
  */
 @Service
+@Timed(value = "filmbase.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
 public class DirectorService {
     private final DirectorRepository repo;
+    private final FilmRepository filmRepo;
+    private final CatalogVersion catalogVersion;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
 
     /**
      * Constructor for DirectorService.
      * @param repo The repository for Director entities.
+     * @param filmRepo The repository for Film entities.
+     * @param catalogVersion The version of the catalog, bumped by every write.
+     * @param eventPublisher The publisher notifying read-side structures about written directors.
+     * @param transactionManager The transaction manager of writes.
      */
     @Autowired
-    public DirectorService(DirectorRepository repo) {
+    public DirectorService(DirectorRepository repo,
+                           FilmRepository filmRepo,
+                           CatalogVersion catalogVersion,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager) {
         this.repo = repo;
+        this.filmRepo = filmRepo;
+        this.catalogVersion = catalogVersion;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
     }
 
     /**
-     * Retrieves all directors.
-     * @return A list of DirectorModel.
+     * Retrieves a page of directors with numbers of their films.
+     * @param page The number of the page, starting from 1.
+     * @param pageSize The number of directors on a page.
+     * @return The DirectorListResponse containing the page of directors and number of pages.
      */
-    public List<DirectorModel> findAll() {
-        List<DirectorModel> modelList = new ArrayList<>();
-        for (Director director: repo.findAll()) {
-            modelList.add(directorEntityToModel(director));
+    public DirectorListResponse listDirectors(int page, int pageSize) {
+        Page<DirectorListDto> directors = repo.findDirectorList(PageRequest.of(page - 1, pageSize));
+        DirectorListResponse response = new DirectorListResponse();
+        response.setDirectors(directors.getContent());
+        response.setTotalPages(directors.getTotalPages());
+        return response;
+    }
+
+    /**
+     * Retrieves a page of films of a director.
+     * @param id The id of the director.
+     * @param page The number of the page, starting from 1.
+     * @param pageSize The number of films on a page.
+     * @return The FilmListResponse containing the page of films and number of pages.
+     * @throws NoSuchElementException if the director does not exist.
+     */
+    public FilmListResponse listFilms(Long id, int page, int pageSize) {
+        if (!repo.existsById(id)) {
+            throw new NoSuchElementException("Director does not exist: " + id);
         }
-        return modelList;
+        Page<FilmListDto> films = filmRepo.findListByDirector(id, PageRequest.of(page - 1, pageSize));
+        FilmListResponse response = new FilmListResponse();
+        response.setFilms(films.getContent());
+        response.setTotalPages(films.getTotalPages());
+        return response;
     }
 
     /**
@@ -52,37 +101,70 @@ public class DirectorService {
         if (repo.existsByName(model.getName())) {
             throw new ValidationException("Director already exists: " + model.getName());
         }
-        return directorEntityToModel(repo.save(directorModelToEntity(model)));
+        Director director = transaction.execute(status -> {
+            Director saved = repo.save(directorModelToEntity(model));
+            catalogVersion.bump();
+            return saved;
+        });
+        eventPublisher.publishEvent(CatalogChangedEvent.director(director.getId()));
+        return directorEntityToModel(director);
+    }
+
+    /**
+     * Retrieves the ETag of a page of directors from versions and counts only, without loading directors.
+     * @param page The number of the page, starting from 1.
+     * @param pageSize The number of directors on a page.
+     * @return The quoted strong ETag of the DirectorListResponse of the page.
+     */
+    public String getDirectorListEtag(int page, int pageSize) {
+        return repo.findListEtag(pageSize, (long) (page - 1) * pageSize);
     }
 
     /**
      * Updates an existing director.
+     * The current version is written into the director, so the update applies only if it wasn't changed meanwhile.
      * @param id The id of the director to be updated.
      * @param model The DirectorModel representing the updated director.
      * @return The updated DirectorModel.
      * @throws ValidationException if the director with this name already exists.
      * @throws NoSuchElementException if the director with this ID does not exist.
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the director is changed concurrently.
      */
     public DirectorModel updateDirector(Long id, DirectorModel model) {
         if (repo.existsByName(model.getName())) {
             throw new ValidationException("Director already exists: " + model.getName());
         }
-        if (!repo.existsById(id)) {
-            throw new NoSuchElementException("Director does not exist: " + id);
-        }
-        repo.saveAndFlush(directorModelToEntity(model));
+        long version = repo.findVersionById(id).orElseThrow(() -> new NoSuchElementException("Director does not exist: " + id));
+        Director director = directorModelToEntity(model);
+        director.setId(id);
+        director.setVersion(version);
+        transaction.executeWithoutResult(status -> {
+            repo.saveAndFlush(director);
+            catalogVersion.bump();
+        });
+        eventPublisher.publishEvent(CatalogChangedEvent.director(id));
         return directorEntityToModel(repo.findById(id).get());
     }
 
     /**
      * Deletes a director.
+     * Films aren't deleted with their director: a director who still has films is kept by the database.
      * @param id The id of the director to be deleted.
      * @throws NoSuchElementException if the director does not exist.
+     * @throws ValidationException if the director still has films.
      */
     public void deleteDirector(Long id) {
         if (!repo.existsById(id)) {
             throw new NoSuchElementException("Director does not exist: " + id);
         }
-        repo.deleteById(id);
+        try {
+            transaction.executeWithoutResult(status -> {
+                repo.deleteById(id);
+                catalogVersion.bump();
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new ValidationException("Director has films: " + id, e);
+        }
+        eventPublisher.publishEvent(CatalogChangedEvent.director(id));
     }
 }
@@ -0,0 +1,30 @@
+package ua.holovchenko.filmbase.services;
+
+/**
+ * Matching of ETags against If-Match and If-None-Match headers.
+ */
+public final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * Checks whether a conditional header lists an ETag.
+     * @param header The If-Match or If-None-Match header value, a list of quoted tags or {@code *}.
+     * @param etag The quoted current strong ETag.
+     * @param weak Whether a weak tag with the same value matches, as for If-None-Match.
+     * @return True if the header lists the ETag or is {@code *}.
+     */
+    public static boolean matches(String header, String etag, boolean weak) {
+        if (header == null) {
+            return false;
+        }
+        for (String tag : header.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || weak && trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,297 @@
+package ua.holovchenko.filmbase.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.holovchenko.filmbase.controllers.dto.FilmUploadDto;
+import ua.holovchenko.filmbase.controllers.dto.FilmsUploadResponse;
+import ua.holovchenko.filmbase.controllers.dto.ImportMode;
+import ua.holovchenko.filmbase.entities.Director;
+import ua.holovchenko.filmbase.entities.Film;
+import ua.holovchenko.filmbase.repositories.DirectorRepository;
+import ua.holovchenko.filmbase.repositories.FilmCopyRepository;
+import ua.holovchenko.filmbase.repositories.FilmCopyRepository.CopiedFilms;
+import ua.holovchenko.filmbase.repositories.FilmUpsertRepository;
+import ua.holovchenko.filmbase.repositories.FilmUpsertRepository.UpsertedFilm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static ua.holovchenko.filmbase.converters.FilmModelEntityConverter.filmModelToEntity;
+import static ua.holovchenko.filmbase.converters.UploadDtoConverter.uploadedDtoToModel;
+
+/**
+ * Import engine for uploaded films.
+ * Works in chunks: directors are fetched once per chunk, films are upserted by title in one statement,
+ * skipping or overwriting existing ones as the upload asks, and each chunk is committed in its own transaction.
+ * Uploads are split into partitions by title for the import job queue, whose workers import partitions in parallel;
+ * all films with the same title fall into one partition and are imported in upload order,
+ * so duplicate titles are resolved in upload order whatever the timing.
+ * CSV uploads are loaded with {@code COPY} and merged in one transaction instead.
+ * Imported, skipped, updated and failed films, chunk latency and throughput of the last chunk are published as metrics,
+ * tagged with the endpoint of the upload: {@code upload} for chunks of queued uploads, {@code upload/csv} for CSV uploads.
+ */
+@Component
+public class FilmImporter {
+    private final FilmUpsertRepository upsertRepository;
+    private final FilmCopyRepository copyRepository;
+    private final DirectorRepository directorRepository;
+    private final Cache cache;
+    private final TransactionTemplate transaction;
+    private final CatalogVersion catalogVersion;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int parallelism;
+    private final ImportMeters uploadMeters;
+    private final ImportMeters csvMeters;
+
+    /**
+     * Constructor for FilmImporter.
+     * @param upsertRepository The repository upserting films.
+     * @param copyRepository The repository bulk-loading CSV uploads.
+     * @param directorRepository The repository for Director entities.
+     * @param entityManagerFactory The factory whose second level cache is evicted of upserted films.
+     * @param transactionManager The transaction manager used to commit chunks.
+     * @param catalogVersion The version of the catalog, bumped by chunks writing films.
+     * @param eventPublisher The publisher notifying read-side structures about imported films.
+     * @param parallelism The number of partitions of an upload.
+     * @param registry The registry of import metrics.
+     */
+    @Autowired
+    public FilmImporter(FilmUpsertRepository upsertRepository,
+                        FilmCopyRepository copyRepository,
+                        DirectorRepository directorRepository,
+                        EntityManagerFactory entityManagerFactory,
+                        PlatformTransactionManager transactionManager,
+                        CatalogVersion catalogVersion,
+                        ApplicationEventPublisher eventPublisher,
+                        @Value("${filmbase.import.parallelism:4}") int parallelism,
+                        MeterRegistry registry) {
+        this.upsertRepository = upsertRepository;
+        this.copyRepository = copyRepository;
+        this.directorRepository = directorRepository;
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.catalogVersion = catalogVersion;
+        this.eventPublisher = eventPublisher;
+        this.parallelism = parallelism;
+        this.uploadMeters = new ImportMeters(registry, "upload");
+        this.csvMeters = new ImportMeters(registry, "upload/csv");
+    }
+
+    /**
+     * Returns the partition of an uploaded film.
+     * @param title The title of the film.
+     * @return The partition, from 0 to parallelism - 1.
+     */
+    public int partitionOf(String title) {
+        return title == null ? 0 : Math.floorMod(title.hashCode(), parallelism);
+    }
+
+    /**
+     * Imports films from a CSV file in one transaction, loading it with {@code COPY} and merging it with set-based SQL.
+     * @param csv The input stream with the CSV file, starting with a header line of {@link FilmCopyRepository#CSV_HEADER}.
+     * @param mode Whether films with existing titles are skipped or overwritten.
+     * @return The FilmsUploadResponse containing import statistics.
+     * @throws IOException if the input can't be read.
+     * @throws IllegalArgumentException if the file isn't CSV of the expected columns.
+     */
+    public FilmsUploadResponse importCsv(InputStream csv, ImportMode mode) throws IOException {
+        long start = System.nanoTime();
+        CopiedFilms copied;
+        try {
+            copied = transaction.execute(status -> {
+                CopiedFilms result;
+                try {
+                    result = copyRepository.copyCsv(csv, mode);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (!result.filmIds().isEmpty()) {
+                    catalogVersion.bump();
+                }
+                return result;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Malformed CSV upload", e);
+        }
+        FilmsUploadResponse response = copied.response();
+        if (response.getUpdated() > 0) {
+            cache.evictEntityData(Film.class);
+            cache.evictCollectionData(Film.class.getName() + ".genres");
+            cache.evictCollectionData(Film.class.getName() + ".people");
+        }
+        if (!copied.filmIds().isEmpty()) {
+            cache.evictEntityData(Director.class);
+            cache.evictCollectionData(Director.class.getName() + ".films");
+            eventPublisher.publishEvent(CatalogChangedEvent.films(copied.filmIds()));
+        }
+        csvMeters.record(response, System.nanoTime() - start,
+                response.getImported() + response.getFailed() + response.getSkipped() + response.getUpdated());
+        return response;
+    }
+
+    /**
+     * Imports one chunk of uploaded films in a single transaction.
+     * Films are upserted by title in one statement, which decides whether an existing title is skipped or overwritten,
+     * also when it is written concurrently. A title repeated within the chunk is applied as if the films
+     * were written one by one: the first one wins when skipping, the last one when overwriting.
+     * Films with missing titles or unknown directors are counted as failed.
+     * If the upsert itself fails (e.g. a director was deleted concurrently),
+     * the chunk is retried film by film, so the counts stay accurate.
+     * @param chunk The chunk of FilmUploadDto objects.
+     * @param mode Whether films with existing titles are skipped or overwritten.
+     * @return The FilmsUploadResponse containing import statistics of the chunk.
+     */
+    public FilmsUploadResponse importChunk(List<FilmUploadDto> chunk, ImportMode mode) {
+        long start = System.nanoTime();
+        List<UpsertedFilm> written = new ArrayList<>(chunk.size());
+        FilmsUploadResponse response;
+        try {
+            response = transaction.execute(status -> upsertChunk(chunk, mode, written));
+        } catch (DataAccessException | TransactionException e) {
+            written.clear();
+            response = new FilmsUploadResponse();
+            for (FilmUploadDto dto : chunk) {
+                List<UpsertedFilm> row = new ArrayList<>(1);
+                try {
+                    response.merge(transaction.execute(status -> upsertChunk(List.of(dto), mode, row)));
+                    written.addAll(row);
+                } catch (DataAccessException | TransactionException rowException) {
+                    response.setFailed(response.getFailed() + 1);
+                }
+            }
+        }
+        if (!written.isEmpty()) {
+            evictFromCache(written);
+            eventPublisher.publishEvent(CatalogChangedEvent.films(written.stream().map(UpsertedFilm::id).toList()));
+        }
+        uploadMeters.record(response, System.nanoTime() - start, chunk.size());
+        return response;
+    }
+
+    private FilmsUploadResponse upsertChunk(List<FilmUploadDto> chunk, ImportMode mode, List<UpsertedFilm> written) {
+        FilmsUploadResponse response = new FilmsUploadResponse();
+        Map<String, Director> directors = directorRepository.findAllByNameIn(collect(chunk, FilmUploadDto::getDirectedBy))
+                .stream()
+                .collect(Collectors.toMap(Director::getName, Function.identity()));
+        Map<String, Film> films = new LinkedHashMap<>(chunk.size() * 2);
+        int repeated = 0;
+        for (FilmUploadDto dto : chunk) {
+            try {
+                Director director = directors.get(dto.getDirectedBy());
+                if (dto.getTitle() == null || director == null) {
+                    throw new IllegalArgumentException();
+                }
+                Film film = filmModelToEntity(uploadedDtoToModel(dto), director);
+                if (films.containsKey(dto.getTitle())) {
+                    repeated++;
+                    if (mode == ImportMode.SKIP) continue;
+                }
+                films.put(dto.getTitle(), film);
+            } catch (Exception e) {
+                response.setFailed(response.getFailed() + 1);
+            }
+        }
+        List<UpsertedFilm> upserted = upsertRepository.upsert(new ArrayList<>(films.values()), mode);
+        written.addAll(upserted);
+        if (!upserted.isEmpty()) {
+            catalogVersion.bump();
+        }
+        int inserted = (int) upserted.stream().filter(UpsertedFilm::inserted).count();
+        response.setImported(inserted);
+        if (mode == ImportMode.SKIP) {
+            response.setSkipped(films.size() - upserted.size() + repeated);
+        } else {
+            response.setUpdated(upserted.size() - inserted + repeated);
+        }
+        return response;
+    }
+
+    /**
+     * Evicts films written past the persistence context from the second level cache,
+     * with their collections and the film collections of directors, which may have gained or lost them.
+     * Directors are evicted too: the database bumps their versions with every write of their films.
+     */
+    private void evictFromCache(List<UpsertedFilm> written) {
+        written.stream().filter(film -> !film.inserted()).forEach(film -> {
+            cache.evictEntityData(Film.class, film.id());
+            cache.evictCollectionData(Film.class.getName() + ".genres", film.id());
+            cache.evictCollectionData(Film.class.getName() + ".people", film.id());
+        });
+        cache.evictEntityData(Director.class);
+        cache.evictCollectionData(Director.class.getName() + ".films");
+    }
+
+    private static Set<String> collect(List<FilmUploadDto> chunk, Function<FilmUploadDto, String> getter) {
+        return chunk.stream()
+                .map(getter)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Metrics of the films imported through one endpoint.
+     */
+    private static final class ImportMeters {
+        private final Counter importedFilms;
+        private final Counter failedFilms;
+        private final Counter skippedFilms;
+        private final Counter updatedFilms;
+        private final Timer chunkTimer;
+        private final AtomicLong filmsPerSecond = new AtomicLong();
+
+        private ImportMeters(MeterRegistry registry, String endpoint) {
+            this.importedFilms = films(registry, endpoint, "imported");
+            this.failedFilms = films(registry, endpoint, "failed");
+            this.skippedFilms = films(registry, endpoint, "skipped");
+            this.updatedFilms = films(registry, endpoint, "updated");
+            this.chunkTimer = Timer.builder("filmbase.import.chunk")
+                    .description("Time to import one chunk of uploaded films")
+                    .tag("endpoint", endpoint)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            Gauge.builder("filmbase.import.throughput", filmsPerSecond, AtomicLong::get)
+                    .description("Films per second processed in the last imported chunk")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+        }
+
+        private static Counter films(MeterRegistry registry, String endpoint, String result) {
+            return Counter.builder("filmbase.import.films")
+                    .description("Uploaded films")
+                    .tag("endpoint", endpoint)
+                    .tag("result", result)
+                    .register(registry);
+        }
+
+        private void record(FilmsUploadResponse response, long nanos, int films) {
+            importedFilms.increment(response.getImported());
+            failedFilms.increment(response.getFailed());
+            skippedFilms.increment(response.getSkipped());
+            updatedFilms.increment(response.getUpdated());
+            chunkTimer.record(nanos, TimeUnit.NANOSECONDS);
+            filmsPerSecond.set(films * TimeUnit.SECONDS.toNanos(1) / Math.max(nanos, 1));
+        }
+    }
+}
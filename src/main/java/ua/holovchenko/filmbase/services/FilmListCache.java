@@ -0,0 +1,103 @@
+package ua.holovchenko.filmbase.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ua.holovchenko.filmbase.controllers.dto.FilmListResponse;
+import ua.holovchenko.filmbase.controllers.dto.Filters;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Cache of film list responses keyed by the catalog version, the changes applied to the in-memory catalog
+ * and normalized filters.
+ * Concurrent misses of the same key are coalesced: the first request runs the query
+ * and the others wait for its result, so identical bursts cost one query.
+ */
+@Component
+public class FilmListCache {
+    private final CatalogVersion catalogVersion;
+    private final AsyncCache<Key, FilmListResponse> cache;
+
+    /**
+     * Constructor for FilmListCache.
+     * @param catalogVersion The version of the catalog, invalidating entries on writes.
+     * @param maximumSize The maximal number of cached responses.
+     * @param expireAfterWrite The time a response stays cached.
+     */
+    @Autowired
+    public FilmListCache(CatalogVersion catalogVersion,
+                         @Value("${filmbase.list-cache.maximum-size:1000}") long maximumSize,
+                         @Value("${filmbase.list-cache.expire-after-write:60s}") Duration expireAfterWrite) {
+        this.catalogVersion = catalogVersion;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .buildAsync();
+    }
+
+    /**
+     * Returns the cached response for the filters, or loads it in the calling thread.
+     * @param filters The Filters object containing filter criteria.
+     * @param loader The query producing the response on a miss.
+     * @return The FilmListResponse for the filters.
+     */
+    public FilmListResponse get(Filters filters, Function<Filters, FilmListResponse> loader) {
+        Key key = new Key(catalogVersion.current(), catalogVersion.applied(), normalize(filters));
+        CompletableFuture<FilmListResponse> loading = new CompletableFuture<>();
+        CompletableFuture<FilmListResponse> cached = cache.asMap().putIfAbsent(key, loading);
+        if (cached != null) {
+            try {
+                return cached.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                throw e;
+            }
+        }
+        try {
+            FilmListResponse response = loader.apply(filters);
+            loading.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Copies the filters into a canonical form: empty sets are the same as no sets,
+     * page number is irrelevant when a cursor is given.
+     */
+    private static Filters normalize(Filters filters) {
+        return new Filters(
+                filters.getCursor() == null ? filters.getPage() : 1,
+                filters.getPageSize(),
+                filters.getYear(),
+                filters.getYearSince(),
+                filters.getYearTo(),
+                filters.getDirectedBy(),
+                copy(filters.getWrittenBy()),
+                copy(filters.getProducedBy()),
+                copy(filters.getStarring()),
+                filters.getRunningTime(),
+                filters.getRunningTimeMin(),
+                filters.getRunningTimeMax(),
+                copy(filters.getGenres()),
+                filters.getSort(),
+                filters.getCursor()
+        );
+    }
+
+    private static Set<String> copy(Set<String> values) {
+        return values == null || values.isEmpty() ? null : Set.copyOf(values);
+    }
+
+    private record Key(long version, long applied, Filters filters) {
+    }
+}
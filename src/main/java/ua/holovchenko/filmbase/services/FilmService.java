@@ -1,63 +1,196 @@
 package ua.holovchenko.filmbase.services;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.opencsv.bean.StatefulBeanToCsv;
 import com.opencsv.bean.StatefulBeanToCsvBuilder;
 import com.opencsv.exceptions.CsvDataTypeMismatchException;
 import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.validation.ValidationException;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ua.holovchenko.filmbase.controllers.dto.*;
-import ua.holovchenko.filmbase.converters.FilmModelEntityConverter;
 import ua.holovchenko.filmbase.entities.Director;
 import ua.holovchenko.filmbase.entities.Film;
+import ua.holovchenko.filmbase.metrics.CountingOutputStream;
 import ua.holovchenko.filmbase.models.FilmModel;
 import ua.holovchenko.filmbase.repositories.DirectorRepository;
+import ua.holovchenko.filmbase.repositories.FilmFacetRepository;
+import ua.holovchenko.filmbase.repositories.FilmReportRepository;
 import ua.holovchenko.filmbase.repositories.FilmRepository;
+import ua.holovchenko.filmbase.repositories.criteria.FilmCursor;
 import ua.holovchenko.filmbase.repositories.criteria.FilmSpecification;
+import ua.holovchenko.filmbase.repositories.criteria.FilmSqlFilter;
+import ua.holovchenko.filmbase.services.catalog.InMemoryCatalog;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 import static ua.holovchenko.filmbase.converters.FilmModelEntityConverter.*;
-        import static ua.holovchenko.filmbase.converters.UploadDtoConverter.uploadedDtoToModel;
 
 /**
  * Service class for Film entities.
+ * Every public method is timed with a percentile histogram.
  */
 @Service
+@Timed(value = "filmbase.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
 public class FilmService {
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
     private final FilmRepository repo;
+    private final DirectorRepository directorRepo;
+    private final FilmFacetRepository facetRepo;
+    private final FilmReportRepository reportRepo;
     private final FilmSpecification spec;
-    private final DirectorRepository directorRepository;
+    private final FilmImporter importer;
+    private final ImportJobQueue importJobs;
+    private final FilmListCache listCache;
+    private final ReportCache reportCache;
+    private final CatalogVersion catalogVersion;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<InMemoryCatalog> inMemoryCatalog;
+    private final Cache cache;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int reportFetchSize;
+    private final boolean reportCopy;
+    private final ObjectWriter ndjsonWriter;
+    private final Map<ReportFormat, Counter> reportRows = new EnumMap<>(ReportFormat.class);
+    private final Map<ReportFormat, Counter> reportBytes = new EnumMap<>(ReportFormat.class);
 
     /**
      * Constructor for FilmService.
      * @param repo The repository for Film entities.
+     * @param directorRepo The repository for Director entities, referenced by updated films.
+     * @param facetRepo The repository computing facet counts of films.
+     * @param reportRepo The repository copying CSV reports out of the database.
      * @param spec The specification for Film entities.
-     * @param directorRepository The repository for Director entities.
+     * @param importer The import engine for uploaded films.
+     * @param importJobs The queue of upload import jobs.
+     * @param listCache The cache of film list responses.
+     * @param reportCache The cache of generated reports.
+     * @param catalogVersion The version of the catalog, bumped by every write.
+     * @param eventPublisher The publisher notifying read-side structures about written films.
+     * @param inMemoryCatalog The optional in-memory read engine for film lists.
+     * @param entityManagerFactory The factory whose second level cache is evicted of directors of written films.
+     * @param transactionManager The transaction manager of writes and of report cursors kept open while streaming.
+     * @param reportFetchSize The number of rows fetched per round trip while streaming a report.
+     * @param reportCopy Whether CSV reports are formatted by the database with COPY rather than by opencsv.
+     * @param mapper The application ObjectMapper used to write NDJSON reports.
+     * @param registry The registry of report metrics.
      */
     @Autowired
-    public FilmService(FilmRepository repo, FilmSpecification spec, DirectorRepository directorRepository) {
+    public FilmService(FilmRepository repo,
+                       DirectorRepository directorRepo,
+                       FilmFacetRepository facetRepo,
+                       FilmReportRepository reportRepo,
+                       FilmSpecification spec,
+                       FilmImporter importer,
+                       ImportJobQueue importJobs,
+                       FilmListCache listCache,
+                       ReportCache reportCache,
+                       CatalogVersion catalogVersion,
+                       ApplicationEventPublisher eventPublisher,
+                       ObjectProvider<InMemoryCatalog> inMemoryCatalog,
+                       EntityManagerFactory entityManagerFactory,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${filmbase.report.fetch-size:500}") int reportFetchSize,
+                       @Value("${filmbase.report.copy:true}") boolean reportCopy,
+                       ObjectMapper mapper,
+                       MeterRegistry registry) {
         this.repo = repo;
+        this.directorRepo = directorRepo;
+        this.facetRepo = facetRepo;
+        this.reportRepo = reportRepo;
         this.spec = spec;
-        this.directorRepository = directorRepository;
+        this.importer = importer;
+        this.importJobs = importJobs;
+        this.listCache = listCache;
+        this.reportCache = reportCache;
+        this.catalogVersion = catalogVersion;
+        this.eventPublisher = eventPublisher;
+        this.inMemoryCatalog = inMemoryCatalog;
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.reportFetchSize = reportFetchSize;
+        this.reportCopy = reportCopy;
+        this.ndjsonWriter = mapper.writerFor(FilmListDto.class)
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        for (ReportFormat format : ReportFormat.values()) {
+            reportRows.put(format, Counter.builder("filmbase.report.rows")
+                    .description("Films written to reports")
+                    .tag("endpoint", "_report")
+                    .tag("format", format.getExtension())
+                    .register(registry));
+            reportBytes.put(format, Counter.builder("filmbase.report.bytes")
+                    .description("Bytes of reports written")
+                    .baseUnit("bytes")
+                    .tag("endpoint", "_report")
+                    .tag("format", format.getExtension())
+                    .register(registry));
+        }
     }
 
     /**
      * Creates a new film.
+     * The unique title is enforced by the database on insert rather than checked beforehand.
      * @param model The FilmModel representing the film to be created.
      * @return The created FilmModel.
+     * @throws ValidationException if a film with the title already exists or the director doesn't.
+     * @throws DataIntegrityViolationException if the film violates another constraint.
      */
     public FilmModel createFilm(FilmModel model) {
-        Film film = filmModelToEntity(model);
-        return filmEntityToModel(repo.save(film));
+        Film film = transaction.execute(status -> {
+            Film saved;
+            try {
+                saved = repo.saveAndFlush(filmModelToEntity(model));
+            } catch (DataIntegrityViolationException e) {
+                throw integrityViolation(e, model);
+            }
+            catalogVersion.bump();
+            return saved;
+        });
+        cache.evictEntityData(Director.class);
+        eventPublisher.publishEvent(CatalogChangedEvent.films(List.of(film.getId())));
+        return filmEntityToModel(film);
     }
 
     /**
@@ -70,19 +203,55 @@ public class FilmService {
         return filmEntityToModel(repo.findById(id).orElseThrow());
     }
 
+    /**
+     * Retrieves the ETag of a film from versions only, without loading the film.
+     * @param id The id of the film.
+     * @return The quoted strong ETag of the FilmModel of the film.
+     * @throws NoSuchElementException if the film with the specified id is not found.
+     */
+    public String getFilmEtag(Long id) {
+        return repo.findVersionById(id).orElseThrow().getEtag();
+    }
+
     /**
      * Updates an existing film.
+     * The film and its director are loaded once inside the transaction, If-Match is checked against their versions,
+     * and the film is written with its version in the condition, so a concurrent write makes the update fail.
+     * The unique title is enforced by the database on update rather than checked beforehand.
      * @param id The id of the film to be updated.
      * @param model The FilmModel representing the updated film.
+     * @param ifMatch The If-Match header with ETags the film must have, or null to update any version.
      * @return The updated FilmModel.
      * @throws NoSuchElementException if the film with the specified id is not found.
-     * @throws ValidationException if the film with the updated title already exists.
+     * @throws ValidationException if another film with the updated title already exists or the director doesn't.
+     * @throws DataIntegrityViolationException if the film violates another constraint.
+     * @throws OptimisticLockingFailureException if the film doesn't match If-Match or is changed concurrently.
      */
-    public FilmModel updateFilm(Long id, FilmModel model) {
-        Film film = filmModelToEntity(model);
-        if (!repo.existsById(id)) throw new NoSuchElementException("Film not found");
-        if (repo.existsByTitle(film.getTitle())) throw new ValidationException("Film already exists");
-        return filmEntityToModel(repo.saveAndFlush(film));
+    public FilmModel updateFilm(Long id, FilmModel model, String ifMatch) {
+        Film update = filmModelToEntity(model);
+        FilmModel updated = transaction.execute(status -> {
+            Film film = repo.findWithDirectorById(id).orElseThrow(() -> new NoSuchElementException("Film not found"));
+            long directorVersion = film.getDirectedBy() == null ? 0 : film.getDirectedBy().getVersion();
+            if (ifMatch != null && !EntityTags.matches(ifMatch, FilmRepository.FilmVersion.etag(film.getVersion(), directorVersion), false)) {
+                throw new OptimisticLockingFailureException("Film was changed: " + id);
+            }
+            film.setTitle(update.getTitle());
+            film.setYear(update.getYear());
+            film.setDirectedBy(directorRepo.getReferenceById(model.getDirectedBy().getId()));
+            film.setRunningTime(update.getRunningTime());
+            film.setGenres(update.getGenres());
+            film.setPeople(update.getPeople());
+            try {
+                repo.flush();
+            } catch (DataIntegrityViolationException e) {
+                throw integrityViolation(e, model);
+            }
+            catalogVersion.bump();
+            return filmEntityToModel(film);
+        });
+        cache.evictEntityData(Director.class);
+        eventPublisher.publishEvent(CatalogChangedEvent.films(List.of(id)));
+        return updated;
     }
 
     /**
@@ -91,74 +260,248 @@ public class FilmService {
      * @throws NoSuchElementException if the film with the specified id is not found.
      */
     public void deleteFilm(Long id) {
-        if (repo.existsById(id)) {
+        transaction.executeWithoutResult(status -> {
+            if (!repo.existsById(id)) {
+                throw new NoSuchElementException("Film not found" + id);
+            }
             repo.deleteById(id);
-        } else {
-            throw new NoSuchElementException("Film not found" + id);
-        }
+            catalogVersion.bump();
+        });
+        cache.evictEntityData(Director.class);
+        eventPublisher.publishEvent(CatalogChangedEvent.films(List.of(id)));
     }
 
     /**
      * Retrieves a list of films based on specified filters.
+     * Responses are cached until the next write, identical concurrent requests share one query.
      * @param filters The Filters object containing filter criteria.
      * @return The FilmListResponse containing the list of films and pagination information.
+     * @throws IllegalArgumentException if the cursor is malformed or doesn't match the sort key.
      */
     public FilmListResponse listFilms(Filters filters) {
-        Pageable pageable = PageRequest.of(filters.getPage() - 1, filters.getPageSize());
+        return listCache.get(filters, this::queryFilms);
+    }
+
+    /**
+     * Queries a list of films based on specified filters.
+     * Served by the in-memory catalog when it is enabled, loaded and hasn't missed writes of other instances.
+     * With a cursor the page is found by a keyset predicate, so its cost doesn't depend on its depth;
+     * once the films with a nullable sort key run out, the page continues with the films without one.
+     * Without one the page is found by offset; number of pages is counted only
+     * when neither sort key nor cursor is given, for clients of the page-number contract.
+     * @param filters The Filters object containing filter criteria.
+     * @return The FilmListResponse containing the list of films and pagination information.
+     * @throws IllegalArgumentException if the cursor is malformed or doesn't match the sort key.
+     */
+    private FilmListResponse queryFilms(Filters filters) {
+        InMemoryCatalog catalog = inMemoryCatalog.getIfAvailable();
+        if (catalog != null && catalog.isReady() && catalog.isCurrent()) {
+            return catalog.listFilms(filters);
+        }
+        FilmSortKey sortKey = filters.getSort() == null ? FilmSortKey.ID : filters.getSort();
+        Specification<Film> specification = spec.filmSpecification(filters);
+        FilmListResponse response = new FilmListResponse();
+        FilmCursor cursor = filters.getCursor() == null ? null : FilmCursor.decode(filters.getCursor(), sortKey);
+        long offset = 0;
+        if (cursor == null) {
+            offset = (long) (filters.getPage() - 1) * filters.getPageSize();
+            if (filters.getSort() == null) {
+                long total = repo.count(specification);
+                response.setTotalPages((int) ((total + filters.getPageSize() - 1) / filters.getPageSize()));
+            }
+        }
+        int limit = (int) Math.min((long) filters.getPageSize() + 1, Integer.MAX_VALUE);
+        List<FilmListDto> films = offset > Integer.MAX_VALUE
+                ? List.of()
+                : repo.findListSlice(cursor == null ? specification : specification.and(spec.after(cursor)),
+                        spec.sort(sortKey), (int) offset, limit);
+        if (cursor != null && cursor.value() != null && sortKey.isNullable() && films.size() < limit) {
+            films = new ArrayList<>(films);
+            films.addAll(repo.findListSlice(specification.and(spec.noKey(sortKey)), spec.sort(sortKey), 0, limit - films.size()));
+        }
+        if (films.size() > filters.getPageSize()) {
+            films = films.subList(0, filters.getPageSize());
+            response.setNextCursor(FilmCursor.of(sortKey, films.get(films.size() - 1)).encode());
+        }
+        response.setFilms(films);
+        return response;
+    }
+
+    /**
+     * Searches films by free text over titles, people and genres.
+     * @param request The SearchRequest object containing the query and pagination params.
+     * @return The FilmListResponse containing the page of films ranked by relevance and number of pages.
+     */
+    public FilmListResponse searchFilms(SearchRequest request) {
+        Page<FilmListDto> page = repo.search(request.getQuery(), PageRequest.of(request.getPage() - 1, request.getPageSize()));
         FilmListResponse response = new FilmListResponse();
-        Page<Film> page = repo.findAll(spec.filmSpecification(filters), pageable);
         response.setTotalPages(page.getTotalPages());
-        response.setFilms(
-                page.get()
-                        .map(FilmModelEntityConverter::filmEntityToModel)
-                        .map(FilmListDto::new)
-                        .toList()
-        );
+        response.setFilms(page.getContent());
         return response;
     }
 
     /**
-     * Generates a CSV report of films based on specified filters.
+     * Counts films matching the filters per genre, director, year range and running time range.
+     * Paging, sort and cursor of the filters are ignored.
      * @param filters The Filters object containing filter criteria.
-     * @return The StreamingResponseBody representing the CSV report.
+     * @return The FilmFacetsResponse containing the counts.
      */
-    public StreamingResponseBody createReport(Filters filters) {
+    public FilmFacetsResponse countFacets(Filters filters) {
+        return facetRepo.countFacets(FilmSqlFilter.of(filters));
+    }
+
+    /**
+     * Computes the strong ETag of a report, which changes with every committed write of films or directors.
+     * @param filters The Filters object containing filter criteria.
+     * @param format The format of the report.
+     * @param gzip Whether the report is gzip-compressed.
+     * @return The quoted ETag.
+     */
+    public String reportEtag(Filters filters, ReportFormat format, boolean gzip) {
+        return reportCache.etag(filters, format, gzip);
+    }
+
+    /**
+     * Finds a report in the report cache.
+     * @param etag The ETag of the report from {@link #reportEtag}.
+     * @return The cached report, or empty if it has to be generated.
+     */
+    public Optional<ReportCache.CachedReport> findReport(String etag) {
+        return reportCache.find(etag);
+    }
+
+    /**
+     * Generates a report of films based on specified filters, as CSV or NDJSON, and caches it meanwhile.
+     * Rows are read through a server-side cursor and written one by one, in id order,
+     * so memory use doesn't depend on the number of matching films and the same catalog gives the same bytes.
+     * NDJSON rows are written by one Jackson SequenceWriter, a line per film.
+     * CSV is formatted by the database itself and copied straight to the response, unless disabled
+     * with {@code filmbase.report.copy=false}; the opencsv fallback writes the same columns.
+     * Written rows and uncompressed bytes are counted per format as they are streamed.
+     * A compressed report is gzipped here rather than by the server, so that it is cached compressed
+     * and its strong ETag names the bytes sent.
+     * @param filters The Filters object containing filter criteria.
+     * @param format The format of the report.
+     * @param gzip Whether the report is gzip-compressed.
+     * @param etag The ETag of the report from {@link #reportEtag}.
+     * @return The StreamingResponseBody representing the report.
+     * @throws IllegalArgumentException if a filter value can't be written into the COPY statement.
+     */
+    public StreamingResponseBody createReport(Filters filters, ReportFormat format, boolean gzip, String etag) {
+        StreamingResponseBody report = generateReport(filters, format);
+        return reportCache.store(etag, gzip ? gzipped(report) : report);
+    }
+
+    /**
+     * Tells a duplicate title from a missing director by the SQLState of the violated constraint;
+     * a violation of any other constraint is rethrown as it is.
+     */
+    private static ValidationException integrityViolation(DataIntegrityViolationException e, FilmModel model) {
+        String state = e.getMostSpecificCause() instanceof SQLException sql ? sql.getSQLState() : null;
+        if (UNIQUE_VIOLATION.equals(state)) {
+            return new ValidationException("Film already exists: " + model.getTitle(), e);
+        }
+        if (FOREIGN_KEY_VIOLATION.equals(state)) {
+            return new ValidationException("Director not found: " + model.getDirectedBy().getId(), e);
+        }
+        throw e;
+    }
+
+    private static StreamingResponseBody gzipped(StreamingResponseBody report) {
+        return outputStream -> {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(outputStream, 64 * 1024)) {
+                report.writeTo(gzip);
+            }
+        };
+    }
+
+    private StreamingResponseBody generateReport(Filters filters, ReportFormat format) {
+        Counter rows = reportRows.get(format);
+        Counter bytes = reportBytes.get(format);
+        if (format == ReportFormat.CSV && reportCopy) {
+            String condition = FilmSqlFilter.of(filters).inlined();
+            return outputStream -> copyReport(condition, new CountingOutputStream(outputStream, bytes), rows);
+        }
         return OutputStream -> {
-            try (Writer writer = new OutputStreamWriter(OutputStream, StandardCharsets.UTF_8)) {
-                try {
-                    new StatefulBeanToCsvBuilder<FilmListDto>(writer).build()
-                            .write(
-                                    repo.findAll(spec.filmSpecification(filters)).stream()
-                                            .map(FilmModelEntityConverter::filmEntityToModel)
-                                            .map(FilmListDto::new)
-                            );
-                } catch (CsvDataTypeMismatchException | CsvRequiredFieldEmptyException e) {
-                    throw new RuntimeException("This was not possible, but");
+            try (Writer writer = new OutputStreamWriter(new CountingOutputStream(OutputStream, bytes), StandardCharsets.UTF_8)) {
+                if (format == ReportFormat.NDJSON) {
+                    long written;
+                    try (SequenceWriter ndjson = ndjsonWriter.writeValues(writer)) {
+                        written = streamReport(filters, film -> {
+                            try {
+                                ndjson.write(film);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }, rows);
+                    }
+                    if (written > 0) writer.write('\n');
+                } else {
+                    StatefulBeanToCsv<FilmListDto> csv = new StatefulBeanToCsvBuilder<FilmListDto>(writer).build();
+                    streamReport(filters, film -> {
+                        try {
+                            csv.write(film);
+                        } catch (CsvDataTypeMismatchException | CsvRequiredFieldEmptyException e) {
+                            throw new RuntimeException("This was not possible, but");
+                        }
+                    }, rows);
                 }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
         };
     }
 
+    private void copyReport(String condition, OutputStream out, Counter rows) throws IOException {
+        out.write(FilmReportRepository.CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        rows.increment(reportRepo.copyCsv(condition, out));
+        out.flush();
+    }
+
+    private long streamReport(Filters filters, Consumer<FilmListDto> row, Counter rows) {
+        return readOnlyTransaction.execute(status -> {
+            try (Stream<FilmListDto> films = repo.streamList(spec.filmSpecification(filters), reportFetchSize)) {
+                long[] written = {0};
+                films.forEach(film -> {
+                    row.accept(film);
+                    rows.increment();
+                    written[0]++;
+                });
+                return written[0];
+            }
+        });
+    }
+
     /**
-     * Uploads a list of films from JSON.
-     * @param dtoList The list of FilmUploadDto objects containing film data.
+     * Imports films from a CSV file synchronously, in bulk.
+     * @param csv The input stream with the CSV file.
+     * @param mode Whether films with existing titles are skipped or overwritten.
      * @return The FilmsUploadResponse containing import statistics.
+     * @throws IOException if the input can't be read.
+     * @throws IllegalArgumentException if the file isn't CSV of the expected columns.
      */
-    public FilmsUploadResponse uploadJson(List<FilmUploadDto> dtoList) {
-        FilmsUploadResponse response = new FilmsUploadResponse();
-        for (FilmUploadDto dto: dtoList) {
-            try {
-                if (repo.existsByTitle(dto.getTitle())) throw  new ValidationException();
-                Director director = directorRepository.findByName(dto.getDirectedBy());
-                if (director == null) throw new ValidationException();
-                FilmModel model = uploadedDtoToModel(dto);
-                repo.save(filmModelToEntity(model, director));
-                response.setImported(response.getImported() + 1);
-            } catch (Exception e) {
-                response.setFailed(response.getFailed() + 1);
-            }
-        }
-        return response;
+    public FilmsUploadResponse uploadCsv(InputStream csv, ImportMode mode) throws IOException {
+        return importer.importCsv(csv, mode);
+    }
+
+    /**
+     * Stages films from a JSON array as an import job, imported asynchronously by the job workers.
+     * @param json The input stream with a JSON array of films.
+     * @param mode Whether films with existing titles are skipped or overwritten.
+     * @return The ImportJobResponse describing the staged job.
+     * @throws IOException if the input can't be read or isn't a JSON array of films.
+     */
+    public ImportJobResponse submitUpload(InputStream json, ImportMode mode) throws IOException {
+        return importJobs.submit(json, mode);
     }
-}
 
+    /**
+     * Retrieves an import job with its progress and import statistics.
+     * @param jobId The id of the job.
+     * @return The ImportJobResponse describing the job.
+     * @throws NoSuchElementException if the job doesn't exist.
+     */
+    public ImportJobResponse getUploadJob(Long jobId) {
+        return importJobs.find(jobId);
+    }
+}
@@ -0,0 +1,184 @@
+package ua.holovchenko.filmbase.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.holovchenko.filmbase.controllers.dto.FilmUploadDto;
+import ua.holovchenko.filmbase.controllers.dto.FilmsUploadResponse;
+import ua.holovchenko.filmbase.controllers.dto.ImportJobResponse;
+import ua.holovchenko.filmbase.controllers.dto.ImportMode;
+import ua.holovchenko.filmbase.repositories.ImportJobRepository;
+import ua.holovchenko.filmbase.repositories.ImportJobRepository.ClaimedChunk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Queue of upload import jobs.
+ * An upload is validated and staged as chunks of films in one transaction, so it becomes visible to workers whole.
+ * Films are staged into the partitions of {@link FilmImporter#partitionOf}; workers of every application
+ * instance import chunks of different partitions in parallel and chunks of one partition in upload order.
+ * A chunk whose import fails unexpectedly is released for another attempt and counted as failed after the last one.
+ */
+@Slf4j
+@Component
+public class ImportJobQueue {
+    private final ImportJobRepository repo;
+    private final FilmImporter importer;
+    private final TransactionTemplate transaction;
+    private final ObjectReader uploadReader;
+    private final ObjectReader chunkReader;
+    private final ObjectWriter chunkWriter;
+    private final String workerId = UUID.randomUUID().toString();
+    private final int chunkSize;
+    private final Duration lease;
+    private final int maxAttempts;
+
+    /**
+     * Constructor for ImportJobQueue.
+     * @param repo The repository of import jobs.
+     * @param importer The import engine for uploaded films.
+     * @param transactionManager The transaction manager used to stage uploads.
+     * @param mapper The application ObjectMapper used to read and stage uploaded films.
+     * @param chunkSize The number of films in one chunk.
+     * @param lease The time after which a claimed chunk that isn't completed can be claimed again.
+     * @param maxAttempts The number of attempts to import a chunk before its films are counted as failed.
+     */
+    @Autowired
+    public ImportJobQueue(ImportJobRepository repo,
+                          FilmImporter importer,
+                          PlatformTransactionManager transactionManager,
+                          ObjectMapper mapper,
+                          @Value("${filmbase.import.chunk-size:500}") int chunkSize,
+                          @Value("${filmbase.import.jobs.lease:5m}") Duration lease,
+                          @Value("${filmbase.import.jobs.max-attempts:3}") int maxAttempts) {
+        this.repo = repo;
+        this.importer = importer;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.uploadReader = mapper.readerFor(FilmUploadDto.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.chunkReader = mapper.readerFor(new TypeReference<List<FilmUploadDto>>() { });
+        this.chunkWriter = mapper.writerFor(new TypeReference<List<FilmUploadDto>>() { });
+        this.chunkSize = chunkSize;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Stages films from a JSON array as a new job, reading it incrementally.
+     * At most one chunk of parsed films is held in memory at a time.
+     * Nothing is staged if any part of the input is malformed.
+     * @param json The input stream with a JSON array of films.
+     * @param mode Whether films with existing titles are skipped or overwritten.
+     * @return The ImportJobResponse describing the staged job.
+     * @throws IOException if the input can't be read or isn't a JSON array of films.
+     */
+    public ImportJobResponse submit(InputStream json, ImportMode mode) throws IOException {
+        long jobId;
+        try {
+            jobId = transaction.execute(status -> {
+                try {
+                    return stage(json, mode);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return find(jobId);
+    }
+
+    /**
+     * Retrieves a job with its progress.
+     * @param jobId The id of the job.
+     * @return The ImportJobResponse describing the job.
+     * @throws NoSuchElementException if the job doesn't exist.
+     */
+    public ImportJobResponse find(long jobId) {
+        return repo.findJob(jobId).orElseThrow(() -> new NoSuchElementException("Import job not found: " + jobId));
+    }
+
+    /**
+     * Claims and imports the next staged chunk, if any.
+     * @return True if a chunk was claimed.
+     */
+    public boolean processNextChunk() {
+        Optional<ClaimedChunk> claimed = repo.claimChunk(workerId, lease);
+        if (claimed.isEmpty()) {
+            return false;
+        }
+        ClaimedChunk chunk = claimed.get();
+        FilmsUploadResponse result;
+        try {
+            result = importer.importChunk(chunkReader.readValue(chunk.payload()), chunk.mode());
+        } catch (IOException | RuntimeException e) {
+            if (chunk.attempts() < maxAttempts) {
+                log.warn("Import of chunk {} of job {} failed, releasing it", chunk.chunkNo(), chunk.jobId(), e);
+                repo.releaseChunk(chunk, workerId);
+                return true;
+            }
+            log.error("Import of chunk {} of job {} failed {} times, counting its films as failed",
+                    chunk.chunkNo(), chunk.jobId(), chunk.attempts(), e);
+            result = new FilmsUploadResponse();
+            result.setFailed(chunk.films());
+        }
+        if (!repo.completeChunk(chunk, workerId, result)) {
+            log.warn("Lease of chunk {} of job {} expired before it was imported", chunk.chunkNo(), chunk.jobId());
+        }
+        return true;
+    }
+
+    private long stage(InputStream json, ImportMode mode) throws IOException {
+        long jobId = repo.createJob(mode);
+        int chunks = 0;
+        int films = 0;
+        Map<Integer, List<FilmUploadDto>> partitions = new TreeMap<>();
+        try (JsonParser parser = uploadReader.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of films");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() == null) {
+                    throw new IOException("Unexpected end of JSON input");
+                }
+                FilmUploadDto film = uploadReader.readValue(parser);
+                int partition = importer.partitionOf(film.getTitle());
+                List<FilmUploadDto> chunk = partitions.computeIfAbsent(partition, p -> new ArrayList<>(chunkSize));
+                chunk.add(film);
+                if (chunk.size() == chunkSize) {
+                    repo.addChunk(jobId, chunks++, partition, chunkWriter.writeValueAsString(chunk), chunk.size());
+                    films += chunk.size();
+                    chunk.clear();
+                }
+            }
+            for (Map.Entry<Integer, List<FilmUploadDto>> chunk : partitions.entrySet()) {
+                if (!chunk.getValue().isEmpty()) {
+                    repo.addChunk(jobId, chunks++, chunk.getKey(), chunkWriter.writeValueAsString(chunk.getValue()), chunk.getValue().size());
+                    films += chunk.getValue().size();
+                }
+            }
+        }
+        repo.completeStaging(jobId, chunks, films);
+        return jobId;
+    }
+}
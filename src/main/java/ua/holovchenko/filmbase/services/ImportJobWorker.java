@@ -0,0 +1,72 @@
+package ua.holovchenko.filmbase.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Worker polling the import job queue and importing staged chunks until it is drained.
+ * Chunks are imported by a bounded number of threads, one chunk per thread at a time.
+ * Runs on every instance unless {@code filmbase.import.jobs.worker.enabled} is false.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmbase.import.jobs.worker.enabled", havingValue = "true", matchIfMissing = true)
+public class ImportJobWorker {
+    private final ImportJobQueue queue;
+    private final int parallelism;
+    private final ExecutorService pool;
+
+    /**
+     * Constructor for ImportJobWorker.
+     * @param queue The import job queue.
+     * @param parallelism The number of threads importing chunks.
+     */
+    @Autowired
+    public ImportJobWorker(ImportJobQueue queue, @Value("${filmbase.import.parallelism:4}") int parallelism) {
+        this.queue = queue;
+        this.parallelism = parallelism;
+        this.pool = Executors.newFixedThreadPool(parallelism, Thread.ofPlatform().name("import-worker-", 0).factory());
+    }
+
+    /**
+     * Imports staged chunks on all worker threads while there are any they can claim.
+     * @throws InterruptedException if interrupted while waiting for the worker threads.
+     */
+    @Scheduled(fixedDelayString = "${filmbase.import.jobs.poll-interval:PT1S}")
+    public void poll() throws InterruptedException {
+        Callable<Void> drain = () -> {
+            boolean claimed = true;
+            while (claimed) {
+                claimed = queue.processNextChunk();
+            }
+            return null;
+        };
+        for (Future<Void> thread : pool.invokeAll(Collections.nCopies(parallelism, drain))) {
+            try {
+                thread.get();
+            } catch (ExecutionException e) {
+                log.warn("Polling the import job queue failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
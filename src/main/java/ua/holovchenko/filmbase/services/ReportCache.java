@@ -0,0 +1,310 @@
+package ua.holovchenko.filmbase.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ua.holovchenko.filmbase.controllers.dto.Filters;
+import ua.holovchenko.filmbase.controllers.dto.ReportFormat;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of generated reports in files of a local directory.
+ * A report is keyed by a SHA-256 hash of its normalized filters, format and encoding and the catalog version,
+ * which doubles as its strong ETag: any committed write bumps the version in the database and makes older reports
+ * unreachable, and instances serving the same catalog give the same report the same tag.
+ * A report is written to its file while it is streamed to the first client, and later requests are served
+ * from the file instead of being queried again.
+ * Files are evicted in least recently used order above the size cap; an evicted file is deleted only after
+ * a grace period, so that requests that have just found it can still send it. The directory is cleared on startup.
+ */
+@Slf4j
+@Component
+public class ReportCache {
+    private static final String SUFFIX = ".report";
+    private static final long GRACE = TimeUnit.MINUTES.toNanos(1);
+
+    private final CatalogVersion catalogVersion;
+    private final ObjectWriter keyWriter;
+    private final Path directory;
+    private final long maximumSize;
+    private final Map<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> evicted = new LinkedHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Reports for the same filters with the same content: paging, sort and cursor are dropped,
+     * sets become sorted lists, empty sets the same as none.
+     */
+    private record ReportFilters(Integer year, Integer yearSince, Integer yearTo, String directedBy,
+                                 List<String> writtenBy, List<String> producedBy, List<String> starring,
+                                 Integer runningTime, Integer runningTimeMin, Integer runningTimeMax,
+                                 List<String> genres) {
+    }
+
+    /**
+     * A cached report.
+     * @param file The real path of the file of the report.
+     * @param length The length of the report in bytes.
+     */
+    public record CachedReport(Path file, long length) {
+        /**
+         * @return The body copying the report from its file, which is opened only when the body is written.
+         */
+        public StreamingResponseBody body() {
+            return out -> {
+                Files.copy(file, out);
+                out.flush();
+            };
+        }
+    }
+
+    /**
+     * Constructor for ReportCache.
+     * @param catalogVersion The version of the catalog, invalidating reports on writes.
+     * @param mapper The application ObjectMapper used to serialize filters into keys.
+     * @param directory The directory of report files, cleared on startup.
+     * @param maximumSize The maximal total size of report files; larger reports aren't cached, and 0 caches none.
+     * @param registry The registry of cache metrics.
+     * @throws IOException if the directory can't be created or cleared.
+     */
+    @Autowired
+    public ReportCache(CatalogVersion catalogVersion,
+                       ObjectMapper mapper,
+                       @Value("${filmbase.report.cache.directory:${java.io.tmpdir}/filmbase-reports}") Path directory,
+                       @Value("${filmbase.report.cache.maximum-size:1GB}") DataSize maximumSize,
+                       MeterRegistry registry) throws IOException {
+        this.catalogVersion = catalogVersion;
+        this.keyWriter = mapper.writerFor(ReportFilters.class);
+        this.directory = Files.createDirectories(directory);
+        this.maximumSize = maximumSize.toBytes();
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(this.directory, "*{" + SUFFIX + ",.tmp}")) {
+            for (Path file : stale) {
+                Files.deleteIfExists(file);
+            }
+        }
+        this.hits = Counter.builder("filmbase.report.cache").description("Report requests served from the cache")
+                .tag("result", "hit").register(registry);
+        this.misses = Counter.builder("filmbase.report.cache").description("Report requests generating the report")
+                .tag("result", "miss").register(registry);
+        Gauge.builder("filmbase.report.cache.size", size, AtomicLong::get).description("Total size of cached reports")
+                .baseUnit("bytes").register(registry);
+    }
+
+    /**
+     * Computes the strong ETag of the report for the filters in the current catalog version.
+     * @param filters The Filters object containing filter criteria.
+     * @param format The format of the report.
+     * @param gzip Whether the report is gzip-compressed, which makes it another representation.
+     * @return The quoted ETag.
+     */
+    public String etag(Filters filters, ReportFormat format, boolean gzip) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(keyWriter.writeValueAsBytes(normalize(filters)));
+            digest.update((format + "\n" + gzip + "\n" + catalogVersion.current()).getBytes());
+            return "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Finds a cached report without opening its file; the file stays for the grace period even if it is evicted.
+     * @param etag The ETag of the report.
+     * @return The cached report, or empty if it isn't cached.
+     */
+    public Optional<CachedReport> find(String etag) {
+        Long length;
+        synchronized (this) {
+            length = files.get(etag);
+        }
+        if (length == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        Path file;
+        try {
+            file = file(etag).toRealPath();
+        } catch (IOException e) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(new CachedReport(file, length));
+    }
+
+    /**
+     * Wraps a report so that its output is also written to a file and cached under the ETag once complete.
+     * The file is dropped if the report fails or outgrows the size cap.
+     * @param etag The ETag of the report.
+     * @param report The body generating the report.
+     * @return The body generating and caching the report, or the report itself if the cache is disabled.
+     */
+    public StreamingResponseBody store(String etag, StreamingResponseBody report) {
+        if (maximumSize == 0) {
+            return report;
+        }
+        return out -> {
+            Path temp = Files.createTempFile(directory, "report", ".tmp");
+            try {
+                TeeOutputStream tee = new TeeOutputStream(out, new BufferedOutputStream(Files.newOutputStream(temp)), maximumSize);
+                try (tee) {
+                    report.writeTo(tee);
+                }
+                if (tee.copied()) {
+                    put(etag, temp, tee.length());
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        };
+    }
+
+    private synchronized void put(String etag, Path temp, long length) throws IOException {
+        Files.move(temp, file(etag), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        evicted.remove(etag);
+        Long replaced = files.put(etag, length);
+        long total = size.addAndGet(length - (replaced == null ? 0 : replaced));
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, Long>> eldest = files.entrySet().iterator();
+        while (total > maximumSize && eldest.hasNext()) {
+            Map.Entry<String, Long> file = eldest.next();
+            evicted.put(file.getKey(), now + GRACE);
+            total = size.addAndGet(-file.getValue());
+            eldest.remove();
+        }
+        Iterator<Map.Entry<String, Long>> expired = evicted.entrySet().iterator();
+        while (expired.hasNext()) {
+            Map.Entry<String, Long> file = expired.next();
+            if (file.getValue() - now > 0) {
+                break;
+            }
+            Files.deleteIfExists(file(file.getKey()));
+            expired.remove();
+        }
+    }
+
+    private Path file(String etag) {
+        return directory.resolve(etag.substring(1, etag.length() - 1) + SUFFIX);
+    }
+
+    private static ReportFilters normalize(Filters filters) {
+        return new ReportFilters(
+                filters.getYear(),
+                filters.getYearSince(),
+                filters.getYearTo(),
+                filters.getDirectedBy(),
+                sorted(filters.getWrittenBy()),
+                sorted(filters.getProducedBy()),
+                sorted(filters.getStarring()),
+                filters.getRunningTime(),
+                filters.getRunningTimeMin(),
+                filters.getRunningTimeMax(),
+                sorted(filters.getGenres())
+        );
+    }
+
+    private static List<String> sorted(Set<String> values) {
+        return values == null || values.isEmpty() ? null : values.stream().sorted().toList();
+    }
+
+    /**
+     * Output stream writing to the response and copying to a file until the copy outgrows the limit or fails;
+     * a failing copy doesn't fail the response.
+     */
+    private static class TeeOutputStream extends FilterOutputStream {
+        private final OutputStream copy;
+        private final long limit;
+        private long length;
+        private boolean copying = true;
+
+        TeeOutputStream(OutputStream out, OutputStream copy, long limit) {
+            super(out);
+            this.copy = copy;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            copy(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            copy(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                copy.close();
+            } catch (IOException e) {
+                stopCopying(e);
+            }
+            super.close();
+        }
+
+        boolean copied() {
+            return copying;
+        }
+
+        long length() {
+            return length;
+        }
+
+        private void copy(byte[] b, int off, int len) throws IOException {
+            if (!copying) {
+                return;
+            }
+            length += len;
+            if (length > limit) {
+                copying = false;
+                return;
+            }
+            try {
+                copy.write(b, off, len);
+            } catch (IOException e) {
+                stopCopying(e);
+            }
+        }
+
+        private void stopCopying(IOException e) {
+            if (copying) {
+                log.warn("Failed to copy a report into the cache", e);
+            }
+            copying = false;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package ua.holovchenko.filmbase.services.catalog;
+
+import ua.holovchenko.filmbase.controllers.dto.Filters;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar store of the film catalog.
+ * Scalar attributes live in primitive arrays indexed by row, multi-valued attributes and directors
+ * in dictionaries mapping each distinct value to the bitmap of rows holding it.
+ * Rows are append-only: an updated film gets a new row and its old row is tombstoned in the live bitmap.
+ * Not thread-safe, guarded by {@link InMemoryCatalog}.
+ */
+final class FilmColumns {
+    static final int NULL_INT = Integer.MIN_VALUE;
+    static final long NO_DIRECTOR = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private String[] titles = new String[INITIAL_CAPACITY];
+    private int[] years = new int[INITIAL_CAPACITY];
+    private int[] runningTimes = new int[INITIAL_CAPACITY];
+    private long[] directorIds = new long[INITIAL_CAPACITY];
+    private int size;
+
+    private final BitSet live = new BitSet();
+    private final Map<Long, Integer> rowById = new HashMap<>();
+    private final Map<Long, String> directorNames = new HashMap<>();
+    private final Map<String, Long> directorIdsByName = new HashMap<>();
+    private final Map<Long, RowBitmap> directors = new HashMap<>();
+    private final Map<String, RowBitmap> genres = new HashMap<>();
+    private final Map<String, RowBitmap> writers = new HashMap<>();
+    private final Map<String, RowBitmap> producers = new HashMap<>();
+    private final Map<String, RowBitmap> stars = new HashMap<>();
+
+    /**
+     * Adds a film, replacing the previous version of it if there is one.
+     * @param film The film to add.
+     */
+    void upsert(FilmRow film) {
+        remove(film.id());
+        if (size == ids.length) {
+            grow();
+        }
+        int row = size++;
+        ids[row] = film.id();
+        titles[row] = film.title();
+        years[row] = film.year() == null ? NULL_INT : film.year();
+        runningTimes[row] = film.runningTime() == null ? NULL_INT : film.runningTime();
+        directorIds[row] = film.directorId() == null ? NO_DIRECTOR : film.directorId();
+        if (film.directorId() != null) {
+            putDirector(film.directorId(), film.directorName());
+            directors.computeIfAbsent(film.directorId(), id -> new RowBitmap()).add(row);
+        }
+        index(genres, film.genres(), row);
+        index(writers, film.writers(), row);
+        index(producers, film.producers(), row);
+        index(stars, film.stars(), row);
+        live.set(row);
+        rowById.put(film.id(), row);
+    }
+
+    /**
+     * Removes a film if it is present.
+     * @param id The id of the film.
+     */
+    void remove(long id) {
+        Integer row = rowById.remove(id);
+        if (row != null) {
+            live.clear(row);
+        }
+    }
+
+    /**
+     * Removes all films of a director.
+     * @param directorId The id of the director.
+     */
+    void removeFilmsOf(long directorId) {
+        RowBitmap rows = directors.get(directorId);
+        if (rows == null) {
+            return;
+        }
+        BitSet directed = rows.toBitSet();
+        directed.and(live);
+        directed.stream().forEach(row -> remove(ids[row]));
+    }
+
+    /**
+     * Sets the name of a director, or forgets the director if the name is null.
+     * @param directorId The id of the director.
+     * @param name The name of the director.
+     */
+    void putDirector(long directorId, String name) {
+        String previous = name == null ? directorNames.remove(directorId) : directorNames.put(directorId, name);
+        if (previous != null && !previous.equals(name)) {
+            directorIdsByName.remove(previous, directorId);
+        }
+        if (name != null) {
+            directorIdsByName.put(name, directorId);
+        }
+    }
+
+    /**
+     * @return The number of tombstoned rows that still take memory.
+     */
+    int garbage() {
+        return size - rowById.size();
+    }
+
+    /**
+     * @return The number of films in the catalog.
+     */
+    int liveCount() {
+        return rowById.size();
+    }
+
+    /**
+     * Selects rows of films matching all filters.
+     * Dictionary filters are intersected from the most selective bitmap,
+     * range filters are then checked by scanning the int columns, in parallel for large candidate sets.
+     * @param filters The filters.
+     * @param parallelThreshold The minimal number of rows of a scan to split it across cores.
+     * @return The bitmap of matching rows.
+     */
+    BitSet select(Filters filters, int parallelThreshold) {
+        List<RowBitmap> bitmaps = new ArrayList<>();
+        if (filters.getDirectedBy() != null) {
+            Long directorId = directorIdsByName.get(filters.getDirectedBy());
+            RowBitmap rows = directorId == null ? null : directors.get(directorId);
+            if (rows == null) {
+                return new BitSet();
+            }
+            bitmaps.add(rows);
+        }
+        if (!collect(bitmaps, genres, filters.getGenres())
+                || !collect(bitmaps, writers, filters.getWrittenBy())
+                || !collect(bitmaps, producers, filters.getProducedBy())
+                || !collect(bitmaps, stars, filters.getStarring())) {
+            return new BitSet();
+        }
+        BitSet rows;
+        if (bitmaps.isEmpty()) {
+            rows = (BitSet) live.clone();
+        } else {
+            bitmaps.sort(Comparator.comparingInt(RowBitmap::cardinalityEstimate));
+            rows = bitmaps.get(0).toBitSet();
+            rows.and(live);
+            for (int i = 1; i < bitmaps.size() && !rows.isEmpty(); i++) {
+                bitmaps.get(i).andInto(rows);
+            }
+        }
+        IntRange year = IntRange.of(filters.getYear(), filters.getYearSince(), filters.getYearTo());
+        IntRange runningTime = IntRange.of(filters.getRunningTime(), filters.getRunningTimeMin(), filters.getRunningTimeMax());
+        if (year == null && runningTime == null) {
+            return rows;
+        }
+        return scan(rows, year, runningTime, parallelThreshold);
+    }
+
+    private BitSet scan(BitSet rows, IntRange year, IntRange runningTime, int parallelThreshold) {
+        long[] words = rows.toLongArray();
+        int parts = words.length * (long) Long.SIZE >= parallelThreshold
+                ? ForkJoinPool.getCommonPoolParallelism() * 4
+                : 1;
+        int wordsPerPart = (words.length + parts - 1) / parts;
+        IntStream partitions = IntStream.range(0, parts);
+        if (parts > 1) {
+            partitions = partitions.parallel();
+        }
+        partitions.forEach(part -> {
+            int to = Math.min(words.length, (part + 1) * wordsPerPart);
+            for (int w = part * wordsPerPart; w < to; w++) {
+                long word = words[w];
+                long remaining = word;
+                while (remaining != 0) {
+                    int bit = Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    int row = w * Long.SIZE + bit;
+                    if ((year != null && !year.contains(years[row]))
+                            || (runningTime != null && !runningTime.contains(runningTimes[row]))) {
+                        word &= ~(1L << bit);
+                    }
+                }
+                words[w] = word;
+            }
+        });
+        return BitSet.valueOf(words);
+    }
+
+    long id(int row) {
+        return ids[row];
+    }
+
+    String title(int row) {
+        return titles[row];
+    }
+
+    int year(int row) {
+        return years[row];
+    }
+
+    int runningTime(int row) {
+        return runningTimes[row];
+    }
+
+    long directorId(int row) {
+        return directorIds[row];
+    }
+
+    String directorName(int row) {
+        return directorNames.get(directorIds[row]);
+    }
+
+    private static boolean collect(List<RowBitmap> bitmaps, Map<String, RowBitmap> dictionary, Set<String> values) {
+        if (values == null) {
+            return true;
+        }
+        for (String value : values) {
+            RowBitmap rows = dictionary.get(value);
+            if (rows == null) {
+                return false;
+            }
+            bitmaps.add(rows);
+        }
+        return true;
+    }
+
+    private static void index(Map<String, RowBitmap> dictionary, Set<String> values, int row) {
+        for (String value : values) {
+            dictionary.computeIfAbsent(value, v -> new RowBitmap()).add(row);
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        years = Arrays.copyOf(years, capacity);
+        runningTimes = Arrays.copyOf(runningTimes, capacity);
+        directorIds = Arrays.copyOf(directorIds, capacity);
+    }
+
+    /**
+     * Inclusive range of an int column built from "equals", "min" and "max" filters. Nulls never match.
+     */
+    private record IntRange(int min, int max) {
+        static IntRange of(Integer equal, Integer min, Integer max) {
+            if (equal == null && min == null && max == null) {
+                return null;
+            }
+            int low = Integer.MIN_VALUE + 1;
+            int high = Integer.MAX_VALUE;
+            if (equal != null) {
+                low = equal;
+                high = equal;
+            }
+            if (min != null) {
+                low = Math.max(low, min);
+            }
+            if (max != null) {
+                high = Math.min(high, max);
+            }
+            return new IntRange(low, high);
+        }
+
+        boolean contains(int value) {
+            return value != NULL_INT && value >= min && value <= max;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ua.holovchenko.filmbase.services.catalog;
+
+import java.util.Set;
+
+/**
+ * Flat view of a film with everything the in-memory catalog indexes.
+ */
+record FilmRow(long id,
+               String title,
+               Integer year,
+               Integer runningTime,
+               Long directorId,
+               String directorName,
+               Set<String> genres,
+               Set<String> writers,
+               Set<String> producers,
+               Set<String> stars) {
+}
@@ -0,0 +1,119 @@
+package ua.holovchenko.filmbase.services.catalog;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ua.holovchenko.filmbase.entities.PersonRole;
+
+import java.util.*;
+
+/**
+ * Reads films as flat {@link FilmRow}s for the in-memory catalog, bypassing the persistence context.
+ * Films, genres and people are read with one query each and joined in memory.
+ * Ids are bound as one array parameter, so any number of them fits in a statement.
+ */
+@Component
+class FilmRowLoader {
+    private static final String FILMS = "select f.id, f.title, f.year, f.running_time, f.directed_by, d.name " +
+            "from films f left join directors d on d.id = f.directed_by where %s order by f.id";
+    private static final String GENRES = "select g.film_id, g.genre from film_genres g " +
+            "join films f on f.id = g.film_id where %s";
+    private static final String PEOPLE = "select p.film_id, p.role, p.name from film_people p " +
+            "join films f on f.id = p.film_id where %s";
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    @Autowired
+    FilmRowLoader(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * @return All films of the catalog, ordered by id.
+     */
+    List<FilmRow> loadAll() {
+        return load("true", new MapSqlParameterSource());
+    }
+
+    /**
+     * @param ids The ids of films.
+     * @return The films that still exist.
+     */
+    List<FilmRow> loadFilms(Collection<Long> ids) {
+        return ids.isEmpty() ? List.of() : load("f.id = any(:ids)", new MapSqlParameterSource("ids", toArray(ids)));
+    }
+
+    /**
+     * @param directorIds The ids of directors.
+     * @return The films of these directors.
+     */
+    List<FilmRow> loadFilmsOf(Collection<Long> directorIds) {
+        return directorIds.isEmpty()
+                ? List.of()
+                : load("f.directed_by = any(:ids)", new MapSqlParameterSource("ids", toArray(directorIds)));
+    }
+
+    /**
+     * @param directorId The id of a director.
+     * @return The name of the director, or null if the director doesn't exist.
+     */
+    String loadDirectorName(long directorId) {
+        List<String> names = jdbc.queryForList("select name from directors where id = :id",
+                new MapSqlParameterSource("id", directorId), String.class);
+        return names.isEmpty() ? null : names.get(0);
+    }
+
+    private static long[] toArray(Collection<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private List<FilmRow> load(String condition, MapSqlParameterSource params) {
+        Map<Long, Builder> films = new LinkedHashMap<>();
+        jdbc.query(FILMS.formatted(condition), params, rs -> {
+            Builder film = new Builder();
+            film.id = rs.getLong(1);
+            film.title = rs.getString(2);
+            film.year = rs.getObject(3, Integer.class);
+            film.runningTime = rs.getObject(4, Integer.class);
+            film.directorId = rs.getObject(5, Long.class);
+            film.directorName = rs.getString(6);
+            films.put(film.id, film);
+        });
+        jdbc.query(GENRES.formatted(condition), params, rs -> {
+            Builder film = films.get(rs.getLong(1));
+            if (film != null) {
+                film.genres.add(rs.getString(2));
+            }
+        });
+        jdbc.query(PEOPLE.formatted(condition), params, rs -> {
+            Builder film = films.get(rs.getLong(1));
+            if (film == null) {
+                return;
+            }
+            switch (PersonRole.valueOf(rs.getString(2))) {
+                case WRITER -> film.writers.add(rs.getString(3));
+                case PRODUCER -> film.producers.add(rs.getString(3));
+                case STAR -> film.stars.add(rs.getString(3));
+            }
+        });
+        return films.values().stream().map(Builder::build).toList();
+    }
+
+    private static final class Builder {
+        long id;
+        String title;
+        Integer year;
+        Integer runningTime;
+        Long directorId;
+        String directorName;
+        final Set<String> genres = new HashSet<>();
+        final Set<String> writers = new HashSet<>();
+        final Set<String> producers = new HashSet<>();
+        final Set<String> stars = new HashSet<>();
+
+        FilmRow build() {
+            return new FilmRow(id, title, year, runningTime, directorId, directorName, genres, writers, producers, stars);
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package ua.holovchenko.filmbase.services.catalog;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ua.holovchenko.filmbase.controllers.dto.FilmListDto;
+import ua.holovchenko.filmbase.controllers.dto.FilmListResponse;
+import ua.holovchenko.filmbase.controllers.dto.FilmSortKey;
+import ua.holovchenko.filmbase.controllers.dto.Filters;
+import ua.holovchenko.filmbase.repositories.criteria.FilmCursor;
+import ua.holovchenko.filmbase.services.CatalogChangedEvent;
+import ua.holovchenko.filmbase.services.CatalogVersion;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional read engine answering film lists from a columnar snapshot of the catalog held in memory.
+ * Enabled by {@code filmbase.catalog.in-memory.enabled}. The snapshot is loaded after startup
+ * and kept current by {@link CatalogChangedEvent}s; until it is loaded, lists are served by JPA.
+ * Writes of other instances publish no events here; they are noticed by the catalog version moving further
+ * than the bumps of this instance since the snapshot was loaded, which reloads it and serves lists by JPA meanwhile.
+ * With several instances writing often the snapshot is reloaded often, so it suits read-mostly deployments.
+ * Responses are the same as of the JPA path, except that titles are ordered by
+ * {@link String#compareTo} rather than by the database collation.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "filmbase.catalog.in-memory.enabled", havingValue = "true")
+public class InMemoryCatalog {
+    private final FilmRowLoader loader;
+    private final CatalogVersion catalogVersion;
+    private final int parallelThreshold;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock updates = new ReentrantLock();
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private final Set<Long> changedDuringReload = new HashSet<>();
+    private final Set<Long> directorsChangedDuringReload = new HashSet<>();
+    private volatile FilmColumns columns;
+    private volatile Baseline baseline;
+
+    /**
+     * The catalog version and the bumps of this instance read before the snapshot was loaded.
+     */
+    private record Baseline(long version, long bumped) {
+    }
+
+    /**
+     * Constructor for InMemoryCatalog.
+     * @param loader The loader of film rows.
+     * @param catalogVersion The version of the catalog, telling writes of other instances.
+     * @param parallelThreshold The minimal number of rows of a scan to split it across cores.
+     */
+    @Autowired
+    InMemoryCatalog(FilmRowLoader loader,
+                    CatalogVersion catalogVersion,
+                    @Value("${filmbase.catalog.in-memory.parallel-threshold:65536}") int parallelThreshold) {
+        this.loader = loader;
+        this.catalogVersion = catalogVersion;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * @return True if the snapshot is loaded and lists can be served from memory.
+     */
+    public boolean isReady() {
+        return columns != null;
+    }
+
+    /**
+     * Checks that the snapshot has missed no write of another instance: since it was loaded, the catalog version
+     * may have moved only by the bumps of this instance, whose changes reach it by events.
+     * Otherwise a reload is started.
+     * @return True if the snapshot is loaded and has missed no write.
+     */
+    public boolean isCurrent() {
+        Baseline loaded = baseline;
+        if (loaded == null) {
+            return false;
+        }
+        long version = catalogVersion.current();
+        if (version - loaded.version() <= catalogVersion.bumped() - loaded.bumped()) {
+            return true;
+        }
+        reloadAsync();
+        return false;
+    }
+
+    /**
+     * Retrieves a list of films based on specified filters, following the contract of the JPA path.
+     * @param filters The Filters object containing filter criteria.
+     * @return The FilmListResponse containing the list of films and pagination information.
+     * @throws IllegalArgumentException if the cursor is malformed or doesn't match the sort key.
+     */
+    public FilmListResponse listFilms(Filters filters) {
+        FilmSortKey sortKey = filters.getSort() == null ? FilmSortKey.ID : filters.getSort();
+        FilmCursor cursor = filters.getCursor() == null ? null : FilmCursor.decode(filters.getCursor(), sortKey);
+        FilmListResponse response = new FilmListResponse();
+        lock.readLock().lock();
+        try {
+            FilmColumns store = columns;
+            BitSet rows = store.select(filters, parallelThreshold);
+            RowOrder order = new RowOrder(store, sortKey);
+            int total = rows.cardinality();
+            long offset = 0;
+            if (cursor == null) {
+                offset = (long) (filters.getPage() - 1) * filters.getPageSize();
+                if (filters.getSort() == null) {
+                    response.setTotalPages((int) ((total + (long) filters.getPageSize() - 1) / filters.getPageSize()));
+                }
+            }
+            TopRows top = new TopRows((int) Math.min(offset + filters.getPageSize() + 1, total), order);
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                if (cursor == null || order.isAfter(row, cursor)) {
+                    top.offer(row);
+                }
+            }
+            int[] page = top.sorted();
+            int from = (int) Math.min(offset, page.length);
+            int to = (int) Math.min(offset + filters.getPageSize(), page.length);
+            List<FilmListDto> films = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                films.add(toDto(store, page[i]));
+            }
+            if (page.length > to) {
+                response.setNextCursor(order.cursor(page[to - 1]).encode());
+            }
+            response.setFilms(films);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return response;
+    }
+
+    /**
+     * Loads the snapshot once the application is up, without delaying startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reloadAsync();
+    }
+
+    /**
+     * Applies written films and directors to the snapshot, before the changes applied are counted.
+     * Changes are loaded and applied one at a time after their commit, so a change is never overwritten
+     * by rows of the same film loaded earlier; readers are blocked only while loaded rows are applied.
+     * @param event The event describing the change.
+     */
+    @Order(CatalogVersion.ORDER - 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        boolean compact;
+        updates.lock();
+        try {
+            compact = apply(event);
+        } finally {
+            updates.unlock();
+        }
+        if (compact) {
+            reloadAsync();
+        }
+    }
+
+    private boolean apply(CatalogChangedEvent event) {
+        List<FilmRow> films = loader.loadFilms(event.filmIds());
+        List<FilmRow> directorFilms = loader.loadFilmsOf(event.directorIds());
+        Map<Long, String> directorNames = new HashMap<>();
+        event.directorIds().forEach(id -> directorNames.put(id, loader.loadDirectorName(id)));
+        lock.writeLock().lock();
+        try {
+            if (reloading.get()) {
+                changedDuringReload.addAll(event.filmIds());
+                directorsChangedDuringReload.addAll(event.directorIds());
+            }
+            FilmColumns store = columns;
+            if (store == null) {
+                return false;
+            }
+            event.filmIds().forEach(store::remove);
+            films.forEach(store::upsert);
+            directorNames.forEach((id, name) -> {
+                store.removeFilmsOf(id);
+                store.putDirector(id, name);
+            });
+            directorFilms.forEach(store::upsert);
+            return store.garbage() > Math.max(store.liveCount(), parallelThreshold);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot from the database in the background, dropping tombstoned rows.
+     * Changes arriving while it is built are applied again after the swap.
+     * The version is read before the rows, so a write of another instance during the load is caught by the next check.
+     */
+    private void reloadAsync() {
+        if (!reloading.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                Baseline loaded = new Baseline(catalogVersion.current(), catalogVersion.bumped());
+                FilmColumns fresh = new FilmColumns();
+                loader.loadAll().forEach(fresh::upsert);
+                Set<Long> films;
+                Set<Long> directors;
+                lock.writeLock().lock();
+                try {
+                    columns = fresh;
+                    baseline = loaded;
+                    reloading.set(false);
+                    films = new HashSet<>(changedDuringReload);
+                    directors = new HashSet<>(directorsChangedDuringReload);
+                    changedDuringReload.clear();
+                    directorsChangedDuringReload.clear();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                onCatalogChanged(new CatalogChangedEvent(films, directors));
+                log.info("In-memory catalog loaded: {} films", fresh.liveCount());
+            } catch (RuntimeException e) {
+                reloading.set(false);
+                log.error("In-memory catalog reload failed", e);
+            }
+        });
+    }
+
+    private static FilmListDto toDto(FilmColumns store, int row) {
+        long directorId = store.directorId(row);
+        return new FilmListDto(
+                store.id(row),
+                store.title(row),
+                nullable(store.year(row)),
+                directorId == FilmColumns.NO_DIRECTOR ? null : directorId,
+                store.directorName(row),
+                nullable(store.runningTime(row))
+        );
+    }
+
+    private static Integer nullable(int value) {
+        return value == FilmColumns.NULL_INT ? null : value;
+    }
+
+    /**
+     * Order of rows by a sort key and id, with nulls last, as the database orders them.
+     */
+    private record RowOrder(FilmColumns store, FilmSortKey sortKey) {
+
+        int compare(int a, int b) {
+            int byKey = switch (sortKey) {
+                case ID -> 0;
+                case TITLE -> store.title(a).compareTo(store.title(b));
+                case YEAR -> compareNullsLast(store.year(a), store.year(b));
+                case RUNNING_TIME -> compareNullsLast(store.runningTime(a), store.runningTime(b));
+            };
+            return byKey != 0 ? byKey : Long.compare(store.id(a), store.id(b));
+        }
+
+        boolean isAfter(int row, FilmCursor cursor) {
+            int byKey = switch (sortKey) {
+                case ID -> 0;
+                case TITLE -> store.title(row).compareTo((String) cursor.value());
+                case YEAR -> compareNullsLast(store.year(row), intValue(cursor));
+                case RUNNING_TIME -> compareNullsLast(store.runningTime(row), intValue(cursor));
+            };
+            return byKey != 0 ? byKey > 0 : store.id(row) > cursor.id();
+        }
+
+        FilmCursor cursor(int row) {
+            Object value = switch (sortKey) {
+                case ID -> store.id(row);
+                case TITLE -> store.title(row);
+                case YEAR -> nullable(store.year(row));
+                case RUNNING_TIME -> nullable(store.runningTime(row));
+            };
+            return new FilmCursor(sortKey, value, store.id(row));
+        }
+
+        private static int intValue(FilmCursor cursor) {
+            return cursor.value() == null ? FilmColumns.NULL_INT : (Integer) cursor.value();
+        }
+
+        private static int compareNullsLast(int a, int b) {
+            if (a == b) {
+                return 0;
+            }
+            if (a == FilmColumns.NULL_INT) {
+                return 1;
+            }
+            if (b == FilmColumns.NULL_INT) {
+                return -1;
+            }
+            return Integer.compare(a, b);
+        }
+    }
+
+    /**
+     * Bounded max-heap keeping the first {@code limit} rows in a {@link RowOrder}, without boxing.
+     */
+    private static final class TopRows {
+        private final int[] heap;
+        private final RowOrder order;
+        private int size;
+
+        TopRows(int limit, RowOrder order) {
+            this.heap = new int[limit];
+            this.order = order;
+        }
+
+        void offer(int row) {
+            if (size < heap.length) {
+                heap[size] = row;
+                siftUp(size++);
+            } else if (order.compare(row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(0);
+            }
+        }
+
+        int[] sorted() {
+            int[] rows = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                rows[i] = heap[0];
+                heap[0] = heap[--size];
+                siftDown(0);
+            }
+            return rows;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (order.compare(heap[i], heap[parent]) <= 0) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && order.compare(heap[left], heap[largest]) > 0) {
+                    largest = left;
+                }
+                if (right < size && order.compare(heap[right], heap[largest]) > 0) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int row = heap[i];
+            heap[i] = heap[j];
+            heap[j] = row;
+        }
+    }
+}
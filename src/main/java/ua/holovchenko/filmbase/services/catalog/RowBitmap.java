@@ -0,0 +1,79 @@
+package ua.holovchenko.filmbase.services.catalog;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Set of catalog rows holding one dictionary value.
+ * Rows are only ever appended in ascending order. Sparse sets are kept as a sorted row array
+ * and switch to a plain bitmap once that becomes the smaller representation,
+ * so rare values (most people) don't cost a bitmap as wide as the catalog.
+ */
+final class RowBitmap {
+    private static final int MIN_ARRAY_CAPACITY = 4;
+
+    private int[] rows = new int[MIN_ARRAY_CAPACITY];
+    private int size;
+    private BitSet bits;
+
+    /**
+     * Adds a row that is greater than every row added before.
+     * @param row The row index.
+     */
+    void add(int row) {
+        if (bits != null) {
+            bits.set(row);
+            return;
+        }
+        if (size == rows.length) {
+            if ((long) size * Integer.SIZE > row + 1L) {
+                bits = new BitSet(row + 1);
+                for (int i = 0; i < size; i++) {
+                    bits.set(rows[i]);
+                }
+                bits.set(row);
+                rows = null;
+                return;
+            }
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        rows[size++] = row;
+    }
+
+    /**
+     * @return Upper bound of the number of rows, used to pick the most selective bitmap first.
+     */
+    int cardinalityEstimate() {
+        return bits != null ? bits.cardinality() : size;
+    }
+
+    /**
+     * Keeps in the target only the rows present in this bitmap.
+     * @param target The candidate rows.
+     */
+    void andInto(BitSet target) {
+        if (bits != null) {
+            target.and(bits);
+            return;
+        }
+        BitSet own = new BitSet();
+        for (int i = 0; i < size; i++) {
+            own.set(rows[i]);
+        }
+        target.and(own);
+    }
+
+    /**
+     * @return The rows of this bitmap as a new BitSet.
+     */
+    BitSet toBitSet() {
+        if (bits != null) {
+            return (BitSet) bits.clone();
+        }
+        BitSet own = new BitSet();
+        for (int i = 0; i < size; i++) {
+            own.set(rows[i]);
+        }
+        return own;
+    }
+}
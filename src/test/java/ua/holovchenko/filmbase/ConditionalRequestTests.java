@@ -0,0 +1,245 @@
+package ua.holovchenko.filmbase;
+
+import com.jayway.jsonpath.JsonPath;
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.holovchenko.filmbase.controllers.dto.ImportMode;
+import ua.holovchenko.filmbase.models.DirectorModel;
+import ua.holovchenko.filmbase.models.FilmModel;
+import ua.holovchenko.filmbase.repositories.FilmCopyRepository;
+import ua.holovchenko.filmbase.repositories.FilmRepository;
+import ua.holovchenko.filmbase.services.FilmService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "filmbase.import.jobs.worker.enabled=false")
+@AutoConfigureMockMvc
+@Import(TestFilmbaseApplication.class)
+class ConditionalRequestTests {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	FilmService service;
+
+	@Autowired
+	JdbcTemplate jdbc;
+
+	@Autowired
+	FilmRepository filmRepository;
+
+	@Autowired
+	TransactionTemplate transaction;
+
+	@Test
+	void filmIsServedAndUpdatedConditionally() throws Exception {
+		upload("Conditional film,1960,Alfred Hitchcock,,,,100,thriller\n", ImportMode.SKIP);
+		long id = jdbc.queryForObject("select id from films where title = 'Conditional film'", Long.class);
+		long directorId = jdbc.queryForObject("select id from directors where name = 'Alfred Hitchcock'", Long.class);
+
+		String etag = mvc.perform(get("/api/films/" + id))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("ETag"))
+				.andReturn().getResponse().getHeader("ETag");
+		mvc.perform(get("/api/films/" + id).header("If-None-Match", etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", etag))
+				.andExpect(content().string(""));
+		mvc.perform(get("/api/films/" + id).header("If-None-Match", "W/" + etag))
+				.andExpect(status().isNotModified());
+
+		String film = """
+				{"title": "Conditional film", "year": 1961, "directed by": {"id": %d, "name": "Alfred Hitchcock"},
+				 "written by": ["Writer"], "produced by": ["Producer"], "starring": ["Star"],
+				 "running time": 101, "genres": ["thriller"]}
+				""".formatted(directorId);
+		mvc.perform(put("/api/films/" + id).header("If-Match", "\"stale\"").contentType(MediaType.APPLICATION_JSON).content(film))
+				.andExpect(status().isPreconditionFailed());
+		mvc.perform(put("/api/films/" + id).header("If-Match", etag).contentType(MediaType.APPLICATION_JSON).content(film))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.year").value(1961));
+		assertEquals(1, jdbc.queryForObject("select version from films where id = ?", Long.class, id));
+		mvc.perform(put("/api/films/" + id).header("If-Match", etag).contentType(MediaType.APPLICATION_JSON).content(film))
+				.andExpect(status().isPreconditionFailed());
+
+		String updated = mvc.perform(get("/api/films/" + id).header("If-None-Match", etag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.year").value(1961))
+				.andExpect(jsonPath("$['written by'][0]").value("Writer"))
+				.andReturn().getResponse().getHeader("ETag");
+		assertNotEquals(etag, updated);
+
+		upload("Conditional sibling,1962,Alfred Hitchcock,,,,90,drama\n", ImportMode.SKIP);
+		String sibling = mvc.perform(get("/api/films/" + id).header("If-None-Match", updated))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+		assertNotEquals(updated, sibling);
+
+		upload("Conditional film,1963,Alfred Hitchcock,,,,100,thriller\n", ImportMode.OVERWRITE);
+		mvc.perform(get("/api/films/" + id).header("If-None-Match", sibling))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.year").value(1963));
+	}
+
+	@Test
+	void filmTagFollowsWritesOfSiblingFilms() throws Exception {
+		String created = mvc.perform(post("/api/directors").contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Versioned Director\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		long directorId = ((Number) JsonPath.read(created, "$.id")).longValue();
+		upload("Versioned film,1964,Versioned Director,,,,100,drama\n", ImportMode.SKIP);
+		long id = jdbc.queryForObject("select id from films where title = 'Versioned film'", Long.class);
+		String etag = mvc.perform(get("/api/films/" + id))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+		assertEquals("\"" + jdbc.queryForObject("select f.version || '.' || d.version from films f join directors d on d.id = f.directed_by where f.id = ?",
+				String.class, id) + "\"", etag);
+
+		String sibling = """
+				{"title": "Versioned-sibling", "directed by": {"id": %d, "name": "Versioned Director"},
+				 "written by": [], "produced by": [], "starring": [], "running time": 90, "genres": ["drama"]}
+				""".formatted(directorId);
+		String siblingId = JsonPath.read(mvc.perform(post("/api/films").contentType(MediaType.APPLICATION_JSON).content(sibling))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getContentAsString(), "$.id").toString();
+		String added = mvc.perform(get("/api/films/" + id).header("If-None-Match", etag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$['directed by'].films.length()").value(2))
+				.andReturn().getResponse().getHeader("ETag");
+		assertNotEquals(etag, added);
+
+		mvc.perform(put("/api/directors/" + directorId).contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Versioned Director 2\"}"))
+				.andExpect(status().isOk());
+		String renamed = mvc.perform(get("/api/films/" + id).header("If-None-Match", added))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+
+		mvc.perform(delete("/api/films/" + siblingId))
+				.andExpect(status().isOk());
+		mvc.perform(get("/api/films/" + id).header("If-None-Match", renamed))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$['directed by'].films.length()").value(1));
+	}
+
+	@Test
+	void filmChangedAfterItWasLoadedIsNotOverwritten() throws Exception {
+		upload("Raced film,1965,Alfred Hitchcock,,,,100,drama\n", ImportMode.SKIP);
+		long id = jdbc.queryForObject("select id from films where title = 'Raced film'", Long.class);
+		long directorId = jdbc.queryForObject("select id from directors where name = 'Alfred Hitchcock'", Long.class);
+
+		assertThrows(OptimisticLockingFailureException.class, () -> transaction.executeWithoutResult(status -> {
+			filmRepository.findById(id).orElseThrow();
+			jdbc.update("update films set version = version + 1 where id = ?", id);
+			service.updateFilm(id, film("Raced film", directorId), null);
+		}));
+		assertEquals(1965, jdbc.queryForObject("select year from films where id = ?", Integer.class, id));
+	}
+
+	@Test
+	void directorsAreListedAndUpdatedConditionally() throws Exception {
+		String etag = mvc.perform(get("/api/directors").param("pageSize", "100"))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("ETag"))
+				.andReturn().getResponse().getHeader("ETag");
+		mvc.perform(get("/api/directors").param("pageSize", "100").header("If-None-Match", etag))
+				.andExpect(status().isNotModified());
+
+		upload("Conditional listed film,1970,Alfred Hitchcock,,,,90,drama\n", ImportMode.SKIP);
+		String counted = mvc.perform(get("/api/directors").param("pageSize", "100").header("If-None-Match", etag))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+		assertNotEquals(etag, counted);
+
+		String created = mvc.perform(post("/api/directors").contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Conditional Director\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		long id = ((Number) JsonPath.read(created, "$.id")).longValue();
+		mvc.perform(put("/api/directors/" + id).contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Conditional Director 2\"}"))
+				.andExpect(status().isOk());
+		mvc.perform(put("/api/directors/" + id).contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Conditional Director 3\"}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("Conditional Director 3"));
+		assertEquals(2, jdbc.queryForObject("select version from directors where id = ?", Long.class, id));
+		mvc.perform(get("/api/directors").param("pageSize", "100").header("If-None-Match", counted))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void directorWithFilmsIsNotDeleted() throws Exception {
+		String created = mvc.perform(post("/api/directors").contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Kept Director\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		long id = ((Number) JsonPath.read(created, "$.id")).longValue();
+		upload("Kept film,1950,Kept Director,,,,90,drama\n", ImportMode.SKIP);
+		mvc.perform(delete("/api/directors/" + id))
+				.andExpect(status().isBadRequest());
+		assertEquals(1, jdbc.queryForObject("select count(*) from films where title = 'Kept film'", Integer.class));
+
+		jdbc.update("delete from films where title = 'Kept film'");
+		mvc.perform(delete("/api/directors/" + id))
+				.andExpect(status().isOk());
+		assertEquals(0, jdbc.queryForObject("select count(*) from directors where id = ?", Integer.class, id));
+	}
+
+	@Test
+	void filmConstraintViolationsAreTold() throws Exception {
+		String created = mvc.perform(post("/api/directors").contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Told Director\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		long directorId = ((Number) JsonPath.read(created, "$.id")).longValue();
+		upload("Told film,1951,Told Director,,,,90,drama\n", ImportMode.SKIP);
+		long missingId = jdbc.queryForObject("select coalesce(max(id), 0) + 1000 from directors", Long.class);
+
+		ValidationException duplicate = assertThrows(ValidationException.class,
+				() -> service.createFilm(film("Told film", directorId)));
+		assertEquals("Film already exists: Told film", duplicate.getMessage());
+		ValidationException orphan = assertThrows(ValidationException.class,
+				() -> service.createFilm(film("Told orphan", missingId)));
+		assertEquals("Director not found: " + missingId, orphan.getMessage());
+		long filmId = jdbc.queryForObject("select id from films where title = 'Told film'", Long.class);
+		ValidationException moved = assertThrows(ValidationException.class,
+				() -> service.updateFilm(filmId, film("Told film", missingId), null));
+		assertEquals("Director not found: " + missingId, moved.getMessage());
+
+		String body = """
+				{"title": "Told orphan", "directed by": {"id": %d, "name": "Nobody"},
+				 "written by": [], "produced by": [], "starring": [], "genres": ["drama"]}
+				""".formatted(missingId);
+		mvc.perform(post("/api/films").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isBadRequest());
+		assertEquals(0, jdbc.queryForObject("select count(*) from films where title = 'Told orphan'", Integer.class));
+	}
+
+	private static FilmModel film(String title, long directorId) {
+		FilmModel film = new FilmModel();
+		film.setTitle(title);
+		film.setDirectedBy(new DirectorModel(directorId, "Told Director"));
+		film.setWrittenBy(Set.of());
+		film.setProducedBy(Set.of());
+		film.setStarring(Set.of());
+		film.setGenres(Set.of("drama"));
+		return film;
+	}
+
+	private void upload(String rows, ImportMode mode) throws IOException {
+		String csv = FilmCopyRepository.CSV_HEADER + "\n" + rows;
+		service.uploadCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), mode);
+	}
+}
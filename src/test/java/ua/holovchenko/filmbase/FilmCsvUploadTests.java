@@ -0,0 +1,121 @@
+package ua.holovchenko.filmbase;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.unit.DataSize;
+import ua.holovchenko.filmbase.controllers.dto.FilmsUploadResponse;
+import ua.holovchenko.filmbase.repositories.FilmCopyRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "filmbase.import.jobs.worker.enabled=false")
+@AutoConfigureMockMvc
+@Import(TestFilmbaseApplication.class)
+class FilmCsvUploadTests {
+	private static final String HEADER = FilmCopyRepository.CSV_HEADER + "\n";
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	TestRestTemplate rest;
+
+	@Autowired
+	JdbcTemplate jdbc;
+
+	@Autowired
+	MeterRegistry registry;
+
+	@Test
+	void csvIsMergedIntoFilms() throws Exception {
+		String csv = HEADER
+				+ "Rope,1948,Alfred Hitchcock,Hume Cronyn; Arthur Laurents,Sidney Bernstein,James Stewart;John Dall,80,crime;thriller\n"
+				+ "Rope,1999,Alfred Hitchcock,,,,,\n"
+				+ "\"Lifeboat, The\",1944,Alfred Hitchcock,John Steinbeck,Kenneth Macgowan,Tallulah Bankhead,97,drama\n"
+				+ "Nobody's Film,2000,Nobody,,,,,\n"
+				+ ",2000,Alfred Hitchcock,,,,,\n";
+		double csvImported = imported("upload/csv");
+		double queuedImported = imported("upload");
+		upload(csv, "SKIP")
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.imported").value(2))
+				.andExpect(jsonPath("$.skipped").value(1))
+				.andExpect(jsonPath("$.failed").value(2));
+		assertEquals(csvImported + 2, imported("upload/csv"));
+		assertEquals(queuedImported, imported("upload"));
+		assertTrue(registry.get("filmbase.import.throughput").tag("endpoint", "upload/csv").gauge().value() > 0);
+		assertEquals(1948, jdbc.queryForObject("select year from films where title = 'Rope'", Integer.class));
+		assertEquals(List.of("Arthur Laurents", "Hume Cronyn"), jdbc.queryForList(
+				"select p.name from film_people p join films f on f.id = p.film_id where f.title = 'Rope' and p.role = 'WRITER' order by p.name",
+				String.class));
+		assertEquals(0, jdbc.queryForObject("select count(*) from films where title in ('Rope', 'Lifeboat, The') "
+				+ "and search_vector is distinct from films_search_vector(id, title, directed_by)", Integer.class));
+
+		upload(HEADER + "Rope,1999,Alfred Hitchcock,,,,,\n", "OVERWRITE")
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.imported").value(0))
+				.andExpect(jsonPath("$.updated").value(1));
+		assertEquals(1999, jdbc.queryForObject("select year from films where title = 'Rope'", Integer.class));
+		assertEquals(List.of("Unknown"), jdbc.queryForList(
+				"select g.genre from film_genres g join films f on f.id = g.film_id where f.title = 'Rope'", String.class));
+	}
+
+	@Test
+	void malformedCsvIsRejected() throws Exception {
+		upload(HEADER + "Psycho,nineteen sixty,Alfred Hitchcock,,,,,\n", "SKIP")
+				.andExpect(status().isBadRequest());
+		assertEquals(0, jdbc.queryForObject("select count(*) from films where title = 'Psycho'", Integer.class));
+	}
+
+	@Test
+	void csvLargerThanDefaultMultipartLimitIsUploaded() {
+		StringBuilder csv = new StringBuilder(HEADER);
+		for (int i = 0; i < 25000; i++) {
+			csv.append("Large film ").append(i).append(",1990,Alfred Hitchcock,Writer,Producer,Star,90,drama\n");
+		}
+		byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+		assertTrue(bytes.length > DataSize.ofMegabytes(1).toBytes());
+		MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+		body.add("file", new ByteArrayResource(bytes) {
+			@Override
+			public String getFilename() {
+				return "films.csv";
+			}
+		});
+		body.add("mode", "SKIP");
+		ResponseEntity<FilmsUploadResponse> response = rest.postForEntity("/api/films/upload/csv", body, FilmsUploadResponse.class);
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals(25000, response.getBody().getImported());
+		assertEquals(25000, jdbc.queryForObject("select count(*) from films where title like 'Large film %'", Integer.class));
+	}
+
+	private ResultActions upload(String csv, String mode) throws Exception {
+		return mvc.perform(multipart("/api/films/upload/csv").file(new MockMultipartFile("file", csv.getBytes())).param("mode", mode));
+	}
+
+	private double imported(String endpoint) {
+		return registry.get("filmbase.import.films").tags("endpoint", endpoint, "result", "imported").counter().count();
+	}
+}
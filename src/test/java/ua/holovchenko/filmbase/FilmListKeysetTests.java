@@ -0,0 +1,166 @@
+package ua.holovchenko.filmbase;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ua.holovchenko.filmbase.controllers.dto.ImportMode;
+import ua.holovchenko.filmbase.models.DirectorModel;
+import ua.holovchenko.filmbase.repositories.FilmCopyRepository;
+import ua.holovchenko.filmbase.services.DirectorService;
+import ua.holovchenko.filmbase.services.FilmService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Cursor pages of POST api/films/_list by the nullable sort keys.
+ * The films share key values and miss some, so pages break inside ties, which only the (key, id)
+ * row comparison gets right, and cross from the films with a key to the films without one.
+ */
+@SpringBootTest(properties = "filmbase.import.jobs.worker.enabled=false")
+@AutoConfigureMockMvc
+@Import(TestFilmbaseApplication.class)
+class FilmListKeysetTests {
+	private static final String DIRECTOR = "Keyset Director";
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	FilmService service;
+
+	@Autowired
+	DirectorService directorService;
+
+	@Autowired
+	JdbcTemplate jdbc;
+
+	@BeforeEach
+	void seed() throws Exception {
+		if (jdbc.queryForObject("select count(*) from directors where name = ?", Long.class, DIRECTOR) > 0) {
+			return;
+		}
+		directorService.createDirector(new DirectorModel(DIRECTOR));
+		String csv = FilmCopyRepository.CSV_HEADER + "\n"
+				+ "Keyset film 1,1990,Keyset Director,,,,100,drama\n"
+				+ "Keyset film 2,,Keyset Director,,,,90,drama\n"
+				+ "Keyset film 3,1990,Keyset Director,,,,,drama\n"
+				+ "Keyset film 4,1985,Keyset Director,,,,100,drama\n"
+				+ "Keyset film 5,,Keyset Director,,,,,drama\n"
+				+ "Keyset film 6,1990,Keyset Director,,,,100,drama\n"
+				+ "Keyset film 7,1985,Keyset Director,,,,120,drama\n"
+				+ "Keyset film 8,,Keyset Director,,,,90,drama\n";
+		service.uploadCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportMode.SKIP);
+	}
+
+	@Test
+	void pagesByYearCrossTheNullBoundaryWithoutDuplicatesOrGaps() throws Exception {
+		List<Long> expected = expectedOrder("year");
+		for (int pageSize = 1; pageSize <= expected.size() + 1; pageSize++) {
+			assertEquals(expected, walk("year", pageSize), "Page size " + pageSize);
+		}
+	}
+
+	@Test
+	void pagesByRunningTimeCrossTheNullBoundaryWithoutDuplicatesOrGaps() throws Exception {
+		List<Long> expected = expectedOrder("running_time");
+		for (int pageSize = 1; pageSize <= expected.size() + 1; pageSize++) {
+			assertEquals(expected, walk("runningTime", pageSize), "Page size " + pageSize);
+		}
+	}
+
+	@Test
+	void pageAfterFilmWithoutKeyHasOnlyFilmsWithoutKey() throws Exception {
+		List<Long> expected = expectedOrder("year");
+		long firstWithoutYear = jdbc.queryForObject(
+				"select min(f.id) from films f join directors d on d.id = f.directed_by where d.name = ? and f.year is null",
+				Long.class, DIRECTOR);
+		String page = list("year", 10, cursor("YEAR", firstWithoutYear, ""));
+		assertEquals(expected.subList(expected.indexOf(firstWithoutYear) + 1, expected.size()), ids(page));
+		assertNull(JsonPath.read(page, "$.nextCursor"));
+	}
+
+	@Test
+	void malformedCursorIsBadRequest() throws Exception {
+		List<String> cursors = List.of(
+				"not a cursor!",
+				Base64.getUrlEncoder().encodeToString("garbage".getBytes(StandardCharsets.UTF_8)),
+				cursor("YEAR", "x", "v1990"),
+				cursor("YEAR", 1, "v19x0"),
+				cursor("YEAR", 1, "1990"),
+				cursor("TITLE", 1, "vKeyset film 1"));
+		for (String cursor : cursors) {
+			mvc.perform(post("/api/films/_list").contentType(MediaType.APPLICATION_JSON)
+							.content("""
+									{"directedBy": "%s", "sort": "year", "cursor": "%s"}
+									""".formatted(DIRECTOR, cursor)))
+					.andExpect(status().isBadRequest());
+		}
+	}
+
+	/**
+	 * Follows the cursors from the first page to the last one.
+	 */
+	private List<Long> walk(String sort, int pageSize) throws Exception {
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		do {
+			String page = list(sort, pageSize, cursor);
+			List<Long> pageIds = ids(page);
+			assertTrue(pageIds.size() <= pageSize);
+			ids.addAll(pageIds);
+			cursor = JsonPath.read(page, "$.nextCursor");
+		} while (cursor != null);
+		return ids;
+	}
+
+	private String list(String sort, int pageSize, String cursor) throws Exception {
+		String body = """
+				{"directedBy": "%s", "pageSize": %d, "sort": "%s"%s}
+				""".formatted(DIRECTOR, pageSize, sort, cursor == null ? "" : ", \"cursor\": \"" + cursor + "\"");
+		return mvc.perform(post("/api/films/_list").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+	}
+
+	private static List<Long> ids(String page) {
+		List<Number> ids = JsonPath.read(page, "$.films[*].id");
+		return ids.stream().map(Number::longValue).toList();
+	}
+
+	/**
+	 * Ids of the films ordered by the column with the films without a value last and ties broken by id.
+	 */
+	private List<Long> expectedOrder(String column) {
+		record Row(long id, Integer key) {
+		}
+		List<Row> rows = jdbc.query(
+				"select f.id, f." + column + " from films f join directors d on d.id = f.directed_by where d.name = ?",
+				(rs, rowNum) -> new Row(rs.getLong(1), (Integer) rs.getObject(2)), DIRECTOR);
+		return rows.stream()
+				.sorted(Comparator.comparing(Row::key, Comparator.nullsLast(Comparator.naturalOrder()))
+						.thenComparing(Row::id))
+				.map(Row::id)
+				.toList();
+	}
+
+	private static String cursor(String sortKey, Object id, String value) {
+		String raw = sortKey + "\n" + id + "\n" + value;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
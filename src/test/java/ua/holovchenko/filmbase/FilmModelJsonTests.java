@@ -0,0 +1,75 @@
+package ua.holovchenko.filmbase;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import ua.holovchenko.filmbase.converters.CompactNameSet;
+import ua.holovchenko.filmbase.entities.Director;
+import ua.holovchenko.filmbase.entities.Film;
+import ua.holovchenko.filmbase.models.FilmModel;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ua.holovchenko.filmbase.converters.DirectorModelEntityConverter.directorEntityToModel;
+import static ua.holovchenko.filmbase.converters.FilmModelEntityConverter.filmEntityToModel;
+
+@JsonTest
+class FilmModelJsonTests {
+
+	@Autowired
+	ObjectMapper mapper;
+
+	@Test
+	void modelHasTheNamesOfHashSetsInSortedOrder() {
+		Set<String> writers = Set.of("Aa", "BB", "AaAa", "BBBB", "AaBB", "BBAa", "Hume Cronyn", "Arthur Laurents");
+		Set<String> producers = Set.of("Sidney Bernstein");
+		Set<String> stars = new HashSet<>(IntStream.range(0, 20).mapToObj(i -> "Star " + i).toList());
+		Set<String> genres = Set.of("crime", "thriller", "drama");
+		Director director = new Director(7, "Alfred Hitchcock");
+		Film film = new Film(1, "Rope", 1948, director, writers, producers, stars, 80, genres);
+
+		FilmModel hashSets = new FilmModel(1, "Rope", 1948, directorEntityToModel(director),
+				new HashSet<>(writers), new HashSet<>(producers), new HashSet<>(stars), 80, new HashSet<>(genres));
+		JsonNode expected = sortNames(mapper.valueToTree(hashSets));
+
+		assertEquals(expected, mapper.valueToTree(filmEntityToModel(film)));
+	}
+
+	@Test
+	void namesAreSortedAndFound() {
+		CompactNameSet.Builder builder = new CompactNameSet.Builder();
+		List.of("Star 3", "Aa", "BB", "Star 10", "Star 2").forEach(builder::add);
+		CompactNameSet names = builder.build();
+
+		assertEquals(List.of("Aa", "BB", "Star 10", "Star 2", "Star 3"), new ArrayList<>(names));
+		assertTrue(names.contains("BB"));
+		assertFalse(names.contains("Star 4"));
+		assertFalse(names.contains(3));
+		assertEquals(Set.of("Aa", "BB", "Star 10", "Star 2", "Star 3"), names);
+		assertTrue(CompactNameSet.copyOf(List.of()).isEmpty());
+	}
+
+	private static JsonNode sortNames(JsonNode node) {
+		if (node instanceof ObjectNode object) {
+			object.properties().forEach(property -> property.setValue(sortNames(property.getValue())));
+		} else if (node instanceof ArrayNode array) {
+			List<JsonNode> elements = new ArrayList<>();
+			array.forEach(element -> elements.add(sortNames(element)));
+			if (elements.stream().allMatch(JsonNode::isTextual)) {
+				elements.sort((a, b) -> a.asText().compareTo(b.asText()));
+			}
+			array.removeAll();
+			array.addAll(elements);
+		}
+		return node;
+	}
+}
@@ -0,0 +1,191 @@
+package ua.holovchenko.filmbase;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.bean.StatefulBeanToCsvBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ua.holovchenko.filmbase.controllers.dto.FilmListDto;
+import ua.holovchenko.filmbase.controllers.dto.Filters;
+import ua.holovchenko.filmbase.controllers.dto.ImportMode;
+import ua.holovchenko.filmbase.repositories.FilmCopyRepository;
+import ua.holovchenko.filmbase.services.FilmService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "filmbase.import.jobs.worker.enabled=false")
+@Import(TestFilmbaseApplication.class)
+class FilmReportTests {
+	private final HttpClient http = HttpClient.newHttpClient();
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	FilmService service;
+
+	@Autowired
+	JdbcTemplate jdbc;
+
+	@Autowired
+	ObjectMapper mapper;
+
+	@BeforeEach
+	void seed() throws IOException {
+		StringBuilder csv = new StringBuilder(FilmCopyRepository.CSV_HEADER + "\n");
+		for (int i = 0; i < 100; i++) {
+			csv.append("Report film ").append(i).append(",").append(1950 + i % 30).append(",Alfred Hitchcock,,,,90,drama\n");
+		}
+		service.uploadCsv(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), ImportMode.SKIP);
+	}
+
+	@Test
+	void ndjsonReportIsGzipped() throws Exception {
+		HttpResponse<InputStream> response = report("application/x-ndjson", "gzip");
+		assertEquals(200, response.statusCode());
+		assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+		assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("application/x-ndjson"));
+		List<String> lines;
+		try (InputStream body = new GZIPInputStream(response.body())) {
+			lines = new String(body.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+		}
+		assertEquals(jdbc.queryForObject("select count(*) from films", Integer.class), lines.size());
+		JsonNode first = mapper.readTree(lines.get(0));
+		assertTrue(first.get("title").asText().startsWith("Report film"));
+		assertEquals("Alfred Hitchcock", first.get("directedBy").get("name").asText());
+	}
+
+	@Test
+	void reportFormatIsNegotiated() throws Exception {
+		HttpResponse<InputStream> csv = report("*/*", "identity");
+		assertEquals(200, csv.statusCode());
+		assertNull(csv.headers().firstValue("Content-Encoding").orElse(null));
+		assertTrue(csv.headers().firstValue("Content-Type").orElseThrow().startsWith("text/csv"));
+		try (InputStream body = csv.body()) {
+			assertTrue(new String(body.readAllBytes(), StandardCharsets.UTF_8).startsWith("\"DIRECTEDBY\""));
+		}
+
+		HttpResponse<InputStream> preferred = report("text/csv;q=0.5, application/x-ndjson", "identity");
+		assertTrue(preferred.headers().firstValue("Content-Type").orElseThrow().startsWith("application/x-ndjson"));
+		preferred.body().close();
+
+		assertEquals(406, report("application/xml", "identity").statusCode());
+	}
+
+	@Test
+	void csvReportIsCopiedInOpencsvLayout() throws Exception {
+		String csv = FilmCopyRepository.CSV_HEADER + "\n"
+				+ "\"Say \"\"hi\"\", then\nbye\",,Alfred Hitchcock,O'Brien \\ Jr,,,,\n";
+		service.uploadCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportMode.SKIP);
+		jdbc.update("insert into films (id, title, running_time) values (nextval('films_seq'), 'No director', 7)");
+		long quoted = jdbc.queryForObject("select id from films where title like 'Say%'", Long.class);
+		long directorId = jdbc.queryForObject("select id from directors where name = 'Alfred Hitchcock'", Long.class);
+		long undirected = jdbc.queryForObject("select id from films where title = 'No director'", Long.class);
+
+		HttpResponse<InputStream> written = report("text/csv", "identity", "{\"writtenBy\": [\"O'Brien \\\\ Jr\"]}");
+		assertEquals("\"DIRECTEDBY\",\"ID\",\"RUNNINGTIME\",\"TITLE\",\"YEAR\"\n"
+				+ "\"DirectorModel(id=" + directorId + ", name=Alfred Hitchcock, films=[])\",\"" + quoted
+				+ "\",\"\",\"Say \"\"hi\"\", then\nbye\",\"\"\n", new String(written.body().readAllBytes(), StandardCharsets.UTF_8));
+
+		HttpResponse<InputStream> running = report("text/csv", "identity", "{\"runningTime\": 7}");
+		assertEquals("\"DIRECTEDBY\",\"ID\",\"RUNNINGTIME\",\"TITLE\",\"YEAR\"\n"
+				+ "\"\",\"" + undirected + "\",\"7\",\"No director\",\"\"\n", new String(running.body().readAllBytes(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void csvReportIsCopiedAsOpencsvWritesIt() throws Exception {
+		String csv = FilmCopyRepository.CSV_HEADER + "\n"
+				+ "\"Layout \"\"quoted\"\", film\nline\",,Alfred Hitchcock,,,,11,drama\n"
+				+ "Layout film,1999,Jackie Chan,,,,11,drama\n";
+		service.uploadCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportMode.SKIP);
+		jdbc.update("insert into films (id, title, running_time) values (nextval('films_seq'), 'Layout undirected', 11)");
+
+		Filters filters = new Filters();
+		filters.setRunningTime(11);
+		filters.setPageSize(Integer.MAX_VALUE);
+		List<FilmListDto> films = service.listFilms(filters).getFilms();
+		assertEquals(3, films.size());
+		StringWriter expected = new StringWriter();
+		new StatefulBeanToCsvBuilder<FilmListDto>(expected).build().write(films);
+
+		HttpResponse<InputStream> copied = report("text/csv", "identity", "{\"runningTime\": 11}");
+		assertEquals(expected.toString(), new String(copied.body().readAllBytes(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void reportIsCachedUnderEtag() throws Exception {
+		String filters = "{\"yearSince\": 1975, \"genres\": [\"drama\"]}";
+		HttpResponse<InputStream> first = report("text/csv", "identity", filters);
+		String etag = first.headers().firstValue("ETag").orElseThrow();
+		String body = new String(first.body().readAllBytes(), StandardCharsets.UTF_8);
+		assertTrue(body.contains("\"Report film 29\""));
+
+		HttpResponse<InputStream> notModified = http.send(reportRequest("text/csv", "identity", filters)
+				.header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.ofInputStream());
+		assertEquals(304, notModified.statusCode());
+		assertEquals(etag, notModified.headers().firstValue("ETag").orElse(null));
+		notModified.body().close();
+
+		jdbc.update("update films set running_time = 1 where title = 'Report film 29'");
+		HttpResponse<InputStream> cached = report("text/csv", "identity", filters);
+		assertEquals(etag, cached.headers().firstValue("ETag").orElse(null));
+		assertEquals(body.getBytes(StandardCharsets.UTF_8).length, cached.headers().firstValueAsLong("Content-Length").orElse(-1));
+		assertEquals(body, new String(cached.body().readAllBytes(), StandardCharsets.UTF_8));
+
+		HttpResponse<InputStream> ndjson = report("application/x-ndjson", "identity", filters);
+		assertNotEquals(etag, ndjson.headers().firstValue("ETag").orElse(null));
+		ndjson.body().close();
+
+		String csv = FilmCopyRepository.CSV_HEADER + "\nReport film 100,1980,Alfred Hitchcock,,,,90,drama\n";
+		service.uploadCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportMode.SKIP);
+		HttpResponse<InputStream> changed = http.send(reportRequest("text/csv", "identity", filters)
+				.header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.ofInputStream());
+		assertEquals(200, changed.statusCode());
+		assertNotEquals(etag, changed.headers().firstValue("ETag").orElse(null));
+		String current = new String(changed.body().readAllBytes(), StandardCharsets.UTF_8);
+		assertTrue(current.contains("\"1\",\"Report film 29\""));
+		assertTrue(current.contains("\"Report film 100\""));
+
+		String uploaded = changed.headers().firstValue("ETag").orElseThrow();
+		jdbc.update("update catalog_version set version = version + 1 where id = 1");
+		HttpResponse<InputStream> elsewhere = http.send(reportRequest("text/csv", "identity", filters)
+				.header("If-None-Match", uploaded).build(), HttpResponse.BodyHandlers.ofInputStream());
+		assertEquals(200, elsewhere.statusCode());
+		assertNotEquals(uploaded, elsewhere.headers().firstValue("ETag").orElse(null));
+		elsewhere.body().close();
+	}
+
+	private HttpResponse<InputStream> report(String accept, String encoding) throws Exception {
+		return report(accept, encoding, "{}");
+	}
+
+	private HttpResponse<InputStream> report(String accept, String encoding, String filters) throws Exception {
+		return http.send(reportRequest(accept, encoding, filters).build(), HttpResponse.BodyHandlers.ofInputStream());
+	}
+
+	private HttpRequest.Builder reportRequest(String accept, String encoding, String filters) {
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/films/_report"))
+				.header("Content-Type", "application/json")
+				.header("Accept", accept)
+				.header("Accept-Encoding", encoding)
+				.POST(HttpRequest.BodyPublishers.ofString(filters));
+	}
+}
@@ -0,0 +1,189 @@
+package ua.holovchenko.filmbase;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.holovchenko.filmbase.controllers.dto.FilmsUploadResponse;
+import ua.holovchenko.filmbase.controllers.dto.ImportMode;
+import ua.holovchenko.filmbase.repositories.ImportJobRepository;
+import ua.holovchenko.filmbase.repositories.ImportJobRepository.ClaimedChunk;
+import ua.holovchenko.filmbase.services.ImportJobQueue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {"filmbase.import.jobs.worker.enabled=false", "filmbase.import.chunk-size=2"})
+@AutoConfigureMockMvc
+@Import(TestFilmbaseApplication.class)
+class ImportJobQueueTests {
+	private static final Duration LEASE = Duration.ofMinutes(5);
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	ImportJobQueue queue;
+
+	@Autowired
+	ImportJobRepository repo;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	JdbcTemplate jdbc;
+
+	@Test
+	void uploadIsStagedAndImportedByWorker() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", new ClassPathResource("JSONS/Hitchcock.json").getInputStream());
+		String staged = mvc.perform(multipart("/api/films/upload").file(file))
+				.andExpect(status().isAccepted())
+				.andExpect(header().exists("Location"))
+				.andExpect(jsonPath("$.status").value("PENDING"))
+				.andExpect(jsonPath("$.films").value(11))
+				.andReturn().getResponse().getContentAsString();
+		long jobId = ((Number) JsonPath.read(staged, "$.id")).longValue();
+		int chunks = JsonPath.read(staged, "$.chunks");
+
+		while (queue.processNextChunk()) {
+			// drain the queue as a worker would
+		}
+
+		mvc.perform(get("/api/films/upload/" + jobId))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.status").value("DONE"))
+				.andExpect(jsonPath("$.processedChunks").value(chunks))
+				.andExpect(jsonPath("$.result.imported").value(11))
+				.andExpect(jsonPath("$.result.failed").value(0));
+	}
+
+	@Test
+	void firstOfDuplicateTitlesIsImported() throws Exception {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < 8; i++) {
+			json.append(film("Duplicate", 2000 + i)).append(',');
+			json.append(film("Unique " + i, 2000 + i)).append(',');
+		}
+		json.setCharAt(json.length() - 1, ']');
+		long jobId = uploadAndImport(json.toString(), "SKIP");
+
+		mvc.perform(get("/api/films/upload/" + jobId))
+				.andExpect(jsonPath("$.status").value("DONE"))
+				.andExpect(jsonPath("$.result.imported").value(9))
+				.andExpect(jsonPath("$.result.skipped").value(7))
+				.andExpect(jsonPath("$.result.failed").value(0));
+		assertEquals(2000, jdbc.queryForObject("select year from films where title = 'Duplicate'", Integer.class));
+	}
+
+	@Test
+	void existingTitlesAreSkippedOrOverwritten() throws Exception {
+		String original = "[" + film("Remake 1", 1990, "drama") + "," + film("Remake 2", 1990, "drama") + "]";
+		String remake = "[" + film("Remake 1", 2020, "noir") + "," + film("Remake 2", 2020, "noir") + "," + film("Remake 3", 2020, "noir") + "]";
+		uploadAndImport(original, "SKIP");
+
+		long skipJob = uploadAndImport(remake, "SKIP");
+		mvc.perform(get("/api/films/upload/" + skipJob))
+				.andExpect(jsonPath("$.mode").value("SKIP"))
+				.andExpect(jsonPath("$.result.imported").value(1))
+				.andExpect(jsonPath("$.result.skipped").value(2))
+				.andExpect(jsonPath("$.result.updated").value(0));
+		long remakeId = jdbc.queryForObject("select id from films where title = 'Remake 1'", Long.class);
+		mvc.perform(get("/api/films/" + remakeId))
+				.andExpect(jsonPath("$.year").value(1990));
+
+		long overwriteJob = uploadAndImport(remake, "OVERWRITE");
+		mvc.perform(get("/api/films/upload/" + overwriteJob))
+				.andExpect(jsonPath("$.mode").value("OVERWRITE"))
+				.andExpect(jsonPath("$.result.imported").value(0))
+				.andExpect(jsonPath("$.result.skipped").value(0))
+				.andExpect(jsonPath("$.result.updated").value(3));
+		mvc.perform(get("/api/films/" + remakeId))
+				.andExpect(jsonPath("$.year").value(2020))
+				.andExpect(jsonPath("$.genres[0]").value("noir"));
+		assertEquals(3, jdbc.queryForObject("select count(*) from films where title like 'Remake %' and year = 2020", Integer.class));
+		assertEquals(List.of("noir"), jdbc.queryForList("select distinct g.genre from film_genres g join films f on f.id = g.film_id "
+				+ "where f.title like 'Remake %'", String.class));
+	}
+
+	private long uploadAndImport(String json, String mode) throws Exception {
+		String staged = mvc.perform(multipart("/api/films/upload").file(new MockMultipartFile("file", json.getBytes())).param("mode", mode))
+				.andExpect(status().isAccepted())
+				.andReturn().getResponse().getContentAsString();
+		while (queue.processNextChunk()) {
+			// drain the queue as a worker would
+		}
+		return ((Number) JsonPath.read(staged, "$.id")).longValue();
+	}
+
+	private static String film(String title, int year) {
+		return film(title, year, "drama");
+	}
+
+	private static String film(String title, int year, String genre) {
+		return """
+				{"title":"%s","year":%d,"directed by":"Alfred Hitchcock","written by":["Writer"],\
+				"produced by":["Producer"],"starring":["Actor"],"running time":100,"genres":["%s"]}\
+				""".formatted(title, year, genre);
+	}
+
+	@Test
+	void malformedUploadIsRejected() throws Exception {
+		mvc.perform(multipart("/api/films/upload").file(new MockMultipartFile("file", "{\"title\":".getBytes())))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void unknownJobIsNotFound() throws Exception {
+		mvc.perform(get("/api/films/upload/" + Long.MAX_VALUE))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void concurrentWorkersSkipLockedChunks() throws Exception {
+		long jobId = repo.createJob(ImportMode.SKIP);
+		repo.addChunk(jobId, 0, 0, "[]", 0);
+		repo.addChunk(jobId, 1, 1, "[]", 0);
+		repo.completeStaging(jobId, 2, 0);
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			ClaimedChunk first = repo.claimChunk("first", LEASE).orElseThrow();
+			ClaimedChunk second = assertDoesNotThrow(() -> CompletableFuture
+					.supplyAsync(() -> repo.claimChunk("second", LEASE).orElseThrow())
+					.get(10, TimeUnit.SECONDS));
+			assertEquals(jobId, first.jobId());
+			assertEquals(jobId, second.jobId());
+			assertNotEquals(first.chunkNo(), second.chunkNo());
+		});
+		assertTrue(repo.claimChunk("third", LEASE).isEmpty());
+	}
+
+	@Test
+	void chunksOfPartitionAreClaimedInOrder() {
+		long jobId = repo.createJob(ImportMode.SKIP);
+		repo.addChunk(jobId, 0, 0, "[]", 0);
+		repo.addChunk(jobId, 1, 0, "[]", 0);
+		repo.completeStaging(jobId, 2, 0);
+
+		ClaimedChunk first = repo.claimChunk("first", LEASE).orElseThrow();
+		assertEquals(0, first.chunkNo());
+		assertTrue(repo.claimChunk("second", LEASE).isEmpty());
+		assertTrue(repo.completeChunk(first, "first", new FilmsUploadResponse()));
+		assertEquals(1, repo.claimChunk("second", LEASE).orElseThrow().chunkNo());
+	}
+}
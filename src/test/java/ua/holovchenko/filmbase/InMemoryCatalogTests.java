@@ -0,0 +1,239 @@
+package ua.holovchenko.filmbase;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.holovchenko.filmbase.controllers.dto.FilmListDto;
+import ua.holovchenko.filmbase.controllers.dto.FilmListResponse;
+import ua.holovchenko.filmbase.controllers.dto.FilmSortKey;
+import ua.holovchenko.filmbase.controllers.dto.Filters;
+import ua.holovchenko.filmbase.controllers.dto.ImportMode;
+import ua.holovchenko.filmbase.models.DirectorModel;
+import ua.holovchenko.filmbase.models.FilmModel;
+import ua.holovchenko.filmbase.repositories.FilmCopyRepository;
+import ua.holovchenko.filmbase.services.DirectorService;
+import ua.holovchenko.filmbase.services.FilmService;
+import ua.holovchenko.filmbase.services.catalog.InMemoryCatalog;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The in-memory catalog against the JPA path of another instance on the same database,
+ * which runs with the in-memory catalog and the list cache disabled.
+ */
+@SpringBootTest(properties = {
+		"filmbase.catalog.in-memory.enabled=true",
+		"filmbase.list-cache.maximum-size=0",
+		"filmbase.import.jobs.worker.enabled=false"})
+@Import(TestFilmbaseApplication.class)
+class InMemoryCatalogTests {
+	private static final String[] GENRES = {"drama", "thriller", "comedy", "western"};
+
+	private static ConfigurableApplicationContext otherInstance;
+	private static boolean seeded;
+
+	@Autowired
+	FilmService service;
+
+	@Autowired
+	DirectorService directorService;
+
+	@Autowired
+	InMemoryCatalog catalog;
+
+	@Autowired
+	JdbcConnectionDetails database;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	FilmService otherService;
+
+	@BeforeEach
+	void startOtherInstance() throws Exception {
+		if (otherInstance == null) {
+			otherInstance = new SpringApplicationBuilder(FilmbaseApplication.class)
+					.web(WebApplicationType.NONE)
+					.run("--spring.datasource.url=" + database.getJdbcUrl(),
+							"--spring.datasource.username=" + database.getUsername(),
+							"--spring.datasource.password=" + database.getPassword(),
+							"--filmbase.catalog.in-memory.enabled=false",
+							"--filmbase.list-cache.maximum-size=0",
+							"--filmbase.import.jobs.worker.enabled=false");
+		}
+		otherService = otherInstance.getBean(FilmService.class);
+		if (!seeded) {
+			seed();
+			seeded = true;
+		}
+		awaitCurrent();
+	}
+
+	@AfterAll
+	static void stopOtherInstance() {
+		if (otherInstance != null) {
+			otherInstance.close();
+			otherInstance = null;
+		}
+	}
+
+	@Test
+	void writesOfAnotherInstanceReachTheSnapshot() throws Exception {
+		DirectorModel director = directorService.createDirector(new DirectorModel("Remote Director"));
+		upload("Local film,1801,Remote Director,,,,90,drama\n", ImportMode.SKIP);
+		Filters filters = new Filters();
+		filters.setDirectedBy("Remote Director");
+		assertTrue(catalog.isCurrent());
+		assertEquals(1, catalog.listFilms(filters).getFilms().size());
+
+		FilmModel remote = new FilmModel(0, "Remote film", 1802, director, Set.of(), Set.of(), Set.of(), 95, Set.of("drama"));
+		otherService.createFilm(remote);
+		assertEquals(2, service.listFilms(filters).getFilms().size());
+
+		awaitCurrent();
+		assertEquals(
+				otherService.listFilms(filters).getFilms().stream().map(FilmListDto::getTitle).toList(),
+				catalog.listFilms(filters).getFilms().stream().map(FilmListDto::getTitle).toList());
+		assertEquals(2, service.listFilms(filters).getFilms().size());
+	}
+
+	@Test
+	void listsMatchTheJpaPath() {
+		assertSameLists();
+	}
+
+	@Test
+	void listsMatchTheJpaPathAfterWrites() throws Exception {
+		service.deleteFilm(filmId("Catalog film 020"));
+		long directorId = transactionTemplate.execute(status ->
+				service.getFilmById(filmId("Catalog film 002")).getDirectedBy().getId());
+		transactionTemplate.executeWithoutResult(status ->
+				directorService.updateDirector(directorId, new DirectorModel("Catalog Director renamed")));
+		upload("Catalog film 010,,Jackie Chan,,,Star 9,200,western;noir\n"
+				+ "Catalog film 030,1999,Jackie Chan,Writer 9,,Star 9,61,noir\n"
+				+ "Catalog film 300,,Alfred Hitchcock,,,,,noir;drama\n", ImportMode.OVERWRITE);
+		assertTrue(catalog.isCurrent());
+		assertSameLists();
+	}
+
+	/**
+	 * Compares pages of both paths for filters of every kind, with page numbers, deep offsets
+	 * and cursors walked to the end for every sort key.
+	 */
+	private void assertSameLists() {
+		List<Filters> cases = List.of(
+				filters(f -> { }),
+				filters(f -> { f.setPage(3); f.setPageSize(17); }),
+				filters(f -> { f.setPage(1_000_000); f.setPageSize(50); }),
+				filters(f -> { f.setPage(Integer.MAX_VALUE); f.setPageSize(Integer.MAX_VALUE); }),
+				filters(f -> f.setGenres(Set.of("western"))),
+				filters(f -> f.setGenres(Set.of("drama", "western"))),
+				filters(f -> f.setStarring(Set.of("Star 2"))),
+				filters(f -> { f.setWrittenBy(Set.of("Writer 1")); f.setProducedBy(Set.of("Producer X")); }),
+				filters(f -> f.setDirectedBy("Jackie Chan")),
+				filters(f -> f.setYear(1960)),
+				filters(f -> { f.setYearSince(1955); f.setYearTo(1965); }),
+				filters(f -> f.setRunningTime(90)),
+				filters(f -> { f.setRunningTimeMin(100); f.setRunningTimeMax(110); }),
+				filters(f -> { f.setYearSince(1951); f.setRunningTimeMax(115); f.setGenres(Set.of("drama"));
+					f.setStarring(Set.of("Star 1")); f.setPageSize(3); }));
+		for (Filters filters : cases) {
+			assertEquals(otherService.listFilms(filters), catalog.listFilms(filters), filters::toString);
+			for (FilmSortKey sort : FilmSortKey.values()) {
+				Filters sorted = filters(f -> { f.setPage(2); f.setPageSize(9); f.setSort(sort); });
+				assertEquals(otherService.listFilms(sorted), catalog.listFilms(sorted), sorted::toString);
+				walk(filters, sort);
+			}
+		}
+	}
+
+	private void walk(Filters filters, FilmSortKey sort) {
+		Filters page = copy(filters);
+		page.setPage(1);
+		page.setPageSize(7);
+		page.setSort(sort);
+		List<Long> ids = new ArrayList<>();
+		do {
+			FilmListResponse expected = otherService.listFilms(page);
+			assertEquals(expected, catalog.listFilms(page), page::toString);
+			expected.getFilms().forEach(film -> ids.add(film.getId()));
+			page.setCursor(expected.getNextCursor());
+		} while (page.getCursor() != null);
+		Filters all = copy(filters);
+		all.setPage(1);
+		all.setPageSize(Integer.MAX_VALUE);
+		assertEquals(new HashSet<>(ids).size(), ids.size(), "Duplicate films by " + sort);
+		assertEquals(otherService.listFilms(all).getFilms().size(), ids.size(), "Missing films by " + sort);
+	}
+
+	private static Filters filters(Consumer<Filters> setup) {
+		Filters filters = new Filters();
+		setup.accept(filters);
+		return filters;
+	}
+
+	private static Filters copy(Filters filters) {
+		return new Filters(filters.getPage(), filters.getPageSize(), filters.getYear(), filters.getYearSince(),
+				filters.getYearTo(), filters.getDirectedBy(), filters.getWrittenBy(), filters.getProducedBy(),
+				filters.getStarring(), filters.getRunningTime(), filters.getRunningTimeMin(), filters.getRunningTimeMax(),
+				filters.getGenres(), filters.getSort(), filters.getCursor());
+	}
+
+	/**
+	 * Films with and without years and running times, several directors, people and genres.
+	 */
+	private void seed() throws IOException {
+		directorService.createDirector(new DirectorModel("Catalog Director"));
+		String[] directors = {"Alfred Hitchcock", "Jackie Chan", "Catalog Director"};
+		StringBuilder rows = new StringBuilder();
+		for (int i = 0; i < 240; i++) {
+			rows.append("Catalog film %03d".formatted(i)).append(',')
+					.append(i % 7 == 0 ? "" : String.valueOf(1950 + i % 23)).append(',')
+					.append(directors[i % 3]).append(',')
+					.append("Writer ").append(i % 5).append(',')
+					.append(i % 4 == 0 ? "" : "Producer " + i % 3 + ";Producer X").append(',')
+					.append("Star ").append(i % 6).append(";Star ").append((i + 1) % 6).append(',')
+					.append(i % 5 == 0 ? "" : String.valueOf(80 + i % 41)).append(',')
+					.append(GENRES[i % 4]).append(i % 3 == 0 ? ";western" : "").append('\n');
+		}
+		upload(rows.toString(), ImportMode.SKIP);
+	}
+
+	private long filmId(String title) {
+		Filters filters = new Filters();
+		filters.setPageSize(Integer.MAX_VALUE);
+		return otherService.listFilms(filters).getFilms().stream()
+				.filter(film -> film.getTitle().equals(title))
+				.findFirst().orElseThrow().getId();
+	}
+
+	private void awaitCurrent() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30_000;
+		while (!catalog.isCurrent()) {
+			assertTrue(System.currentTimeMillis() < deadline, "In-memory catalog did not catch up");
+			Thread.sleep(50);
+		}
+	}
+
+	private void upload(String rows, ImportMode mode) throws IOException {
+		String csv = FilmCopyRepository.CSV_HEADER + "\n" + rows;
+		service.uploadCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), mode);
+	}
+}